@@ -0,0 +1,109 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The result of a stage of {@link RequireCatEngine}: a value or an error of a known kind,
+ * so callers can react to failures without parsing error messages.
+ * @param <T> The type of the value.
+ */
+public class BuildResult<T> extends ErrorOr<T> {
+    /**
+     * The kinds of errors a build can fail with.
+     */
+    public enum ErrorKind {
+        /** The root is not a directory. */
+        INVALID_ROOT,
+        /** A 'require' statement points to something that is not a file. */
+        INVALID_REQUIRE,
+        /** A 'require' statement points to a file that was not analyzed. */
+        MISSING_DEPENDENCY,
+        /** An entry file of a target is not one of the analyzed files. */
+        INVALID_ENTRY,
+        /** Files contain circular dependencies, see {@link #getCycles()}. */
+        CIRCULAR_DEPENDENCY,
+        /** The output could not be written or a file could not be read while writing it. */
+        IO_ERROR
+    }
+
+    private final ErrorKind errorKind;
+    private final List<List<String>> cycles;
+
+    private BuildResult(final @Nullable T value,
+                        final @Nullable ErrorKind errorKind,
+                        final @Nullable String error,
+                        final @Nullable List<List<String>> cycles) {
+        super(value, error);
+        this.errorKind = errorKind;
+        this.cycles = cycles;
+    }
+
+    /**
+     * Returns the kind of the error.
+     * @throws NullPointerException if there were no errors.
+     *
+     * @return the kind of the error
+     */
+    public @NotNull ErrorKind getErrorKind() {
+        return Objects.requireNonNull(errorKind);
+    }
+
+    /**
+     * Returns the paths of the files of every cycle if the error is a circular dependency.
+     * Every file in a cycle requires the next one and the last file requires the first one.
+     *
+     * @return the cycles or null
+     */
+    public @Nullable List<List<String>> getCycles() {
+        return cycles;
+    }
+
+    /**
+     * Constructs a new result with the given value (no error occurred).
+     * @param value The value to use
+     * @return the new result
+     * @param <T> The type of the value
+     */
+    public static <T> @NotNull BuildResult<T> success(final @NotNull T value) {
+        return new BuildResult<>(value, null, null, null);
+    }
+
+    /**
+     * Constructs a new result with the given error (an error occurred).
+     * @param errorKind The kind of the error
+     * @param error The error string to use
+     * @param args The arguments to use for string formatting in error (optional)
+     * @return the new result
+     * @param <T> The type of the value
+     */
+    public static <T> @NotNull BuildResult<T> failure(final @NotNull ErrorKind errorKind,
+                                                      final @NotNull String error,
+                                                      final @NotNull Object... args) {
+        return new BuildResult<>(null, errorKind, String.format(error, args), null);
+    }
+
+    /**
+     * Constructs a new result of a circular dependency error.
+     * @param cycles The paths of the files of every cycle
+     * @param error The error string to use
+     * @return the new result
+     * @param <T> The type of the value
+     */
+    public static <T> @NotNull BuildResult<T> circularDependency(final @NotNull List<List<String>> cycles,
+                                                                 final @NotNull String error) {
+        return new BuildResult<>(null, ErrorKind.CIRCULAR_DEPENDENCY, error, cycles);
+    }
+
+    /**
+     * Passes the error of this result on as a result of another type.
+     * @return the result with the same error
+     * @param <U> The type of the value of the new result
+     */
+    public <U> @NotNull BuildResult<U> castError() {
+        return new BuildResult<>(null, getErrorKind(), getError(), cycles);
+    }
+}
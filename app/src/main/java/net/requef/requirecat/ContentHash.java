@@ -0,0 +1,55 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Computes SHA-256 hashes of file contents.
+ */
+public class ContentHash {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> buffers =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    /**
+     * Hashes the whole content of the given file.
+     * @param file The file to hash.
+     * @return The SHA-256 digest of the file's content.
+     * @throws IOException if the file can't be read.
+     */
+    public static byte @NotNull [] of(final @NotNull Path file) throws IOException {
+        final var digest = newDigest();
+        final var buffer = buffers.get();
+
+        try (final var channel = Files.newByteChannel(file)) {
+            buffer.clear();
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+
+        return digest.digest();
+    }
+
+    /**
+     * Creates a new SHA-256 digest.
+     * @return The new digest.
+     */
+    public static @NotNull MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+}
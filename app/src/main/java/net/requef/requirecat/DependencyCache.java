@@ -0,0 +1,340 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * On-disk cache of the 'require' statements parsed from every file.
+ * Entries are keyed by the file's path relative to the root directory and are valid
+ * while the file's size and modification time stay the same, so unchanged files are
+ * served from the cache without being opened.
+ * The invalid statements of a file are cached as well and reported again whenever its entry is used.
+ * Optionally, a content hash is stored as well: a file whose size or modification time
+ * changed but whose content did not (e.g. after a fresh checkout) is then hashed instead of parsed.
+ * The cache file records whether the statements were scanned from file headers only,
+ * and a cache written in the other mode is discarded.
+ * A cache can also live only in memory, carried from one build to the next with {@link #renew()}.
+ * Safe to use from multiple threads.
+ */
+public class DependencyCache {
+    private static final int MAGIC = 0x52434443; // "RCDC"
+    private static final int VERSION = 3;
+    private static final int HASH_LENGTH = 32; // SHA-256
+
+    private final @Nullable File cacheFile;
+    private final Path rootPath;
+    private final boolean useContentHash;
+    private final boolean isHeaderOnly;
+
+    private final Map<String, Entry> loadedEntries;
+    private final Map<String, Entry> usedEntries = new ConcurrentHashMap<>();
+
+    /**
+     * Parses a file on a cache miss.
+     */
+    public interface Parser {
+        /**
+         * Parses the given file.
+         * @param file The file to parse.
+         * @param errorListener The listener of the invalid 'require' statements of the file.
+         * @return The valid 'require' statements of the file or null if it can't be read.
+         */
+        @Nullable List<RequireStatement> parse(@NotNull Path file, @NotNull RequireScanner.ErrorListener errorListener);
+    }
+
+    private DependencyCache(final @Nullable File cacheFile,
+                            final @NotNull Path rootPath,
+                            final boolean useContentHash,
+                            final boolean isHeaderOnly,
+                            final @NotNull Map<String, Entry> loadedEntries) {
+        this.cacheFile = cacheFile;
+        this.rootPath = rootPath;
+        this.useContentHash = useContentHash;
+        this.isHeaderOnly = isHeaderOnly;
+        this.loadedEntries = loadedEntries;
+    }
+
+    /**
+     * Loads the cache from the given file.
+     * A missing, unreadable, corrupt or incompatible cache file results in an empty cache,
+     * as does a cache file written with a different header-only mode.
+     * @param cacheFile The file the cache is stored in.
+     * @param rootDirectory The root directory the cached paths are relative to.
+     * @param useContentHash Whether to store and check content hashes.
+     * @param isHeaderOnly Whether the statements are scanned from file headers only.
+     * @return The loaded cache.
+     */
+    public static @NotNull DependencyCache load(final @NotNull File cacheFile,
+                                                final @NotNull Path rootDirectory,
+                                                final boolean useContentHash,
+                                                final boolean isHeaderOnly) {
+        final var entries = new ConcurrentHashMap<String, Entry>();
+
+        if (cacheFile.isFile()) {
+            try (final var input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+                if (input.readInt() == MAGIC && input.readInt() == VERSION
+                        && input.readBoolean() == isHeaderOnly) {
+                    // No count can exceed the number of bytes in the file, whatever the cache holds.
+                    final long fileSize = cacheFile.length();
+                    final int entryCount = readCount(input, fileSize);
+                    for (int i = 0; i < entryCount; ++i) {
+                        final var path = input.readUTF();
+                        entries.put(path, Entry.read(input, fileSize));
+                    }
+                }
+            } catch (final IOException | RuntimeException e) {
+                // A broken cache is as good as no cache.
+                entries.clear();
+            }
+        }
+
+        return new DependencyCache(cacheFile, rootDirectory, useContentHash, isHeaderOnly, entries);
+    }
+
+    /**
+     * Creates an empty cache that is kept in memory and can't be saved.
+     * @param rootDirectory The root directory the cached paths are relative to.
+     * @param useContentHash Whether to store and check content hashes.
+     * @return The new cache.
+     */
+    public static @NotNull DependencyCache inMemory(final @NotNull Path rootDirectory,
+                                                    final boolean useContentHash) {
+        return new DependencyCache(null, rootDirectory, useContentHash, false, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Creates a cache for the next build, holding the entries looked up since this cache was loaded.
+     * This cache should no longer be used afterwards.
+     * @return The new cache.
+     */
+    public @NotNull DependencyCache renew() {
+        return new DependencyCache(cacheFile, rootPath, useContentHash, isHeaderOnly,
+                new ConcurrentHashMap<>(usedEntries));
+    }
+
+    /**
+     * Returns the cached statements of the given file if the file hasn't changed,
+     * otherwise parses the file with the given parser and caches the result
+     * unless the file changed while it was being parsed.
+     * The invalid statements of the file are reported to the error listener either way.
+     * @param file The file to get the statements of.
+     * @param parser The parser to use on a cache miss, returns null if the file can't be read.
+     * @param errorListener The listener of the invalid 'require' statements of the file.
+     * @return The statements of the file or null if it can't be read.
+     */
+    public @Nullable List<RequireStatement> getOrParse(final @NotNull Path file,
+                                                       final @NotNull Parser parser,
+                                                       final @NotNull RequireScanner.ErrorListener errorListener) {
+        final var key = rootPath.relativize(file).toString();
+
+        final BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (final IOException e) {
+            return parser.parse(file, errorListener);
+        }
+
+        final long size = attributes.size();
+        final long modifiedTime = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+
+        final var entry = loadedEntries.get(key);
+        if (entry != null) {
+            if (entry.size == size && entry.modifiedTime == modifiedTime) {
+                usedEntries.put(key, entry);
+                return entry.replay(errorListener);
+            }
+
+            if (useContentHash && entry.contentHash != null) {
+                final var contentHash = hash(file);
+                if (contentHash != null && Arrays.equals(contentHash, entry.contentHash)) {
+                    usedEntries.put(key, new Entry(size, modifiedTime, contentHash, entry.statements, entry.errors));
+                    return entry.replay(errorListener);
+                }
+            }
+        }
+
+        final var errors = new ArrayList<ParseError>();
+        final var statements = parser.parse(file, (lineNumber, error) -> {
+            errors.add(new ParseError(lineNumber, error));
+            errorListener.onError(lineNumber, error);
+        });
+        if (statements != null) {
+            final var contentHash = useContentHash ? hash(file) : null;
+            // A file changed while it was parsed or hashed may not match its statements, so it isn't cached.
+            if (isUnchanged(file, size, modifiedTime)) {
+                usedEntries.put(key, new Entry(size, modifiedTime, contentHash, statements, errors));
+            }
+        }
+
+        return statements;
+    }
+
+    private static boolean isUnchanged(final @NotNull Path file, final long size, final long modifiedTime) {
+        try {
+            final var attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.size() == size && attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS) == modifiedTime;
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Saves the cache to its file.
+     * Only the entries of the files looked up since loading are saved,
+     * so the entries of deleted files are dropped.
+     * @throws IOException if the cache file can't be written.
+     */
+    public void save() throws IOException {
+        if (cacheFile == null) {
+            throw new IllegalStateException("An in-memory cache can't be saved");
+        }
+
+        final var cachePath = cacheFile.toPath().toAbsolutePath();
+        final var temporaryPath = cachePath.resolveSibling(cachePath.getFileName() + ".tmp");
+
+        try (final var output = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temporaryPath)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeBoolean(isHeaderOnly);
+            output.writeInt(usedEntries.size());
+            for (final var entry : usedEntries.entrySet()) {
+                output.writeUTF(entry.getKey());
+                entry.getValue().write(output);
+            }
+        }
+
+        Files.move(temporaryPath, cachePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a count of the cache file and checks that it is within the given limit.
+     * @throws IOException if the count is negative or exceeds the limit.
+     */
+    private static int readCount(final @NotNull DataInput input, final long limit) throws IOException {
+        final int count = input.readInt();
+        if (count < 0 || count > limit) {
+            throw new IOException("Invalid count " + count + " in the dependency cache");
+        }
+        return count;
+    }
+
+    private static byte @Nullable [] hash(final @NotNull Path filePath) {
+        try {
+            return ContentHash.of(filePath);
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * An invalid 'require' statement of a cached file.
+     */
+    private static class ParseError {
+        private final int lineNumber;
+        private final String error;
+
+        ParseError(final int lineNumber, final @NotNull String error) {
+            this.lineNumber = lineNumber;
+            this.error = error;
+        }
+    }
+
+    private static class Entry {
+        private final long size;
+        private final long modifiedTime;
+        private final byte[] contentHash;
+        private final List<RequireStatement> statements;
+        private final List<ParseError> errors;
+
+        Entry(final long size,
+              final long modifiedTime,
+              final byte @Nullable [] contentHash,
+              final @NotNull List<RequireStatement> statements,
+              final @NotNull List<ParseError> errors) {
+            this.size = size;
+            this.modifiedTime = modifiedTime;
+            this.contentHash = contentHash;
+            this.statements = statements;
+            this.errors = errors;
+        }
+
+        /**
+         * Reports the invalid statements of the file again, as parsing it would.
+         * @return The valid statements of the file.
+         */
+        @NotNull List<RequireStatement> replay(final @NotNull RequireScanner.ErrorListener errorListener) {
+            for (final var error : errors) {
+                errorListener.onError(error.lineNumber, error.error);
+            }
+            return statements;
+        }
+
+        static @NotNull Entry read(final @NotNull DataInput input, final long maxCount) throws IOException {
+            final long size = input.readLong();
+            final long modifiedTime = input.readLong();
+
+            byte[] contentHash = null;
+            final int hashLength = input.readInt();
+            if (hashLength != 0 && hashLength != HASH_LENGTH) {
+                throw new IOException("Invalid content hash length " + hashLength + " in the dependency cache");
+            }
+            if (hashLength > 0) {
+                contentHash = new byte[hashLength];
+                input.readFully(contentHash);
+            }
+
+            final int statementCount = readCount(input, maxCount);
+            final var statements = new ArrayList<RequireStatement>(statementCount);
+            for (int i = 0; i < statementCount; ++i) {
+                final int lineNumber = input.readInt();
+                statements.add(new RequireStatement(lineNumber, input.readUTF()));
+            }
+
+            final int errorCount = readCount(input, maxCount);
+            final var errors = new ArrayList<ParseError>(errorCount);
+            for (int i = 0; i < errorCount; ++i) {
+                final int lineNumber = input.readInt();
+                errors.add(new ParseError(lineNumber, input.readUTF()));
+            }
+
+            return new Entry(size, modifiedTime, contentHash, statements, errors);
+        }
+
+        void write(final @NotNull DataOutput output) throws IOException {
+            output.writeLong(size);
+            output.writeLong(modifiedTime);
+
+            if (contentHash == null) {
+                output.writeInt(0);
+            } else {
+                output.writeInt(contentHash.length);
+                output.write(contentHash);
+            }
+
+            output.writeInt(statements.size());
+            for (final var statement : statements) {
+                output.writeInt(statement.getLineNumber());
+                output.writeUTF(statement.getPath());
+            }
+
+            output.writeInt(errors.size());
+            for (final var error : errors) {
+                output.writeInt(error.lineNumber);
+                output.writeUTF(error.error);
+            }
+        }
+    }
+}
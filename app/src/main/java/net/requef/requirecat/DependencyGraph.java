@@ -0,0 +1,318 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+/**
+ * The resolved dependency graph of the analyzed files.
+ * Every file is identified by the id of its path in a {@link PathTable} and the dependencies
+ * of the file i are dependencies[dependencyOffsets[i]..dependencyOffsets[i + 1])
+ * (compressed sparse row layout), so the whole graph is a few primitive arrays.
+ * Paths are only turned back into {@link Path} objects of the root's file system when the output is written.
+ */
+public class DependencyGraph {
+    private final FileSystem fileSystem;
+    private final PathTable paths;
+    private final int[] dependencyOffsets;
+    private final int[] dependencies;
+
+    private DependencyGraph(final @NotNull FileSystem fileSystem,
+                            final @NotNull PathTable paths,
+                            final int @NotNull [] dependencyOffsets,
+                            final int @NotNull [] dependencies) {
+        this.fileSystem = fileSystem;
+        this.paths = paths;
+        this.dependencyOffsets = dependencyOffsets;
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * Resolves the 'require' statements of every file into the ids of the files they point to.
+     * All files are interned first, then every statement is looked up among them by its normalized path,
+     * so resolving touches no filesystem. Only a statement that points to none of the files is checked
+     * on the disk, to tell an invalid path from a file that was not analyzed.
+     * Files are interned in the order of their paths, so the ids, and with them the order the sorter
+     * breaks ties in, are the same on every run no matter in which order the files were walked.
+     * Returns an error if any statement points to an invalid file or to a file that was not analyzed.
+     * @param rootDirectory The root directory to resolve relative paths against.
+     * @param parsedFiles The 'require' statements of every file.
+     * @return The graph or an error.
+     */
+    public static @NotNull BuildResult<DependencyGraph> resolve(
+            final @NotNull Path rootDirectory,
+            final @NotNull Map<Path, List<RequireStatement>> parsedFiles) {
+        final var paths = new PathTable(parsedFiles.size());
+        final var statements = intern(parsedFiles, paths);
+
+        final int nodeCount = paths.size();
+        final var dependencyOffsets = new int[nodeCount + 1];
+        var dependencies = new int[Math.max(16, nodeCount)];
+        int edgeCount = 0;
+
+        for (int node = 0; node < nodeCount; ++node) {
+            for (final var statement : statements.get(node)) {
+                final var dependencyPath = resolvePath(rootDirectory, statement.getPath());
+                final int dependency = dependencyPath == null ? -1 : paths.find(dependencyPath);
+                if (dependency == -1) {
+                    if (dependencyPath == null || !Files.isRegularFile(rootDirectory.resolve(dependencyPath))) {
+                        return BuildResult.failure(BuildResult.ErrorKind.INVALID_REQUIRE,
+                                "(%s:%d) 'require' statement points to an invalid file",
+                                paths.get(node), statement.getLineNumber());
+                    }
+                    return BuildResult.failure(BuildResult.ErrorKind.MISSING_DEPENDENCY,
+                            "File '%s' required by '%s' does not exist", dependencyPath, paths.get(node));
+                }
+
+                if (edgeCount == dependencies.length) {
+                    dependencies = Arrays.copyOf(dependencies, edgeCount * 2);
+                }
+                dependencies[edgeCount++] = dependency;
+            }
+            dependencyOffsets[node + 1] = edgeCount;
+        }
+
+        return BuildResult.success(new DependencyGraph(rootDirectory.getFileSystem(), paths, dependencyOffsets,
+                Arrays.copyOf(dependencies, edgeCount)));
+    }
+
+    /**
+     * Resolves the 'require' statements of every file like {@link #resolve}, but doesn't stop at the first
+     * statement that can't be resolved: every such statement is reported and left out of the graph,
+     * so the rest of the graph can still be checked for cycles.
+     * Files are resolved in parallel.
+     * @param rootDirectory The root directory to resolve relative paths against.
+     * @param parsedFiles The 'require' statements of every file.
+     * @param diagnostics The list to add a diagnostic of every unresolved statement to.
+     * @return The graph of the resolved statements.
+     */
+    public static @NotNull DependencyGraph resolveAll(final @NotNull Path rootDirectory,
+                                                      final @NotNull Map<Path, List<RequireStatement>> parsedFiles,
+                                                      final @NotNull List<Diagnostic> diagnostics) {
+        final var paths = new PathTable(parsedFiles.size());
+        final var statements = intern(parsedFiles, paths);
+
+        // The table is only read from now on, so the files can be resolved concurrently.
+        final int nodeCount = paths.size();
+        final var nodeDependencies = new int[nodeCount][];
+        final var nodeDiagnostics = new ConcurrentLinkedQueue<Diagnostic>();
+        IntStream.range(0, nodeCount).parallel().forEach(node -> {
+            final var nodeStatements = statements.get(node);
+            final var resolved = new int[nodeStatements.size()];
+            int resolvedCount = 0;
+            for (final var statement : nodeStatements) {
+                final var dependencyPath = resolvePath(rootDirectory, statement.getPath());
+                final int dependency = dependencyPath == null ? -1 : paths.find(dependencyPath);
+                if (dependency != -1) {
+                    resolved[resolvedCount++] = dependency;
+                } else if (dependencyPath == null || !Files.isRegularFile(rootDirectory.resolve(dependencyPath))) {
+                    nodeDiagnostics.add(Diagnostic.of(Diagnostic.Kind.INVALID_REQUIRE, paths.get(node),
+                            statement.getLineNumber(), "'require' statement points to an invalid file"));
+                } else {
+                    nodeDiagnostics.add(Diagnostic.of(Diagnostic.Kind.MISSING_DEPENDENCY, paths.get(node),
+                            statement.getLineNumber(),
+                            String.format("File '%s' required by '%s' does not exist", dependencyPath,
+                                    paths.get(node))));
+                }
+            }
+            nodeDependencies[node] = Arrays.copyOf(resolved, resolvedCount);
+        });
+        diagnostics.addAll(nodeDiagnostics);
+
+        final var dependencyOffsets = new int[nodeCount + 1];
+        for (int node = 0; node < nodeCount; ++node) {
+            dependencyOffsets[node + 1] = dependencyOffsets[node] + nodeDependencies[node].length;
+        }
+        final var dependencies = new int[dependencyOffsets[nodeCount]];
+        for (int node = 0; node < nodeCount; ++node) {
+            System.arraycopy(nodeDependencies[node], 0, dependencies, dependencyOffsets[node],
+                    nodeDependencies[node].length);
+        }
+
+        return new DependencyGraph(rootDirectory.getFileSystem(), paths, dependencyOffsets, dependencies);
+    }
+
+    /**
+     * Interns the files in the order of their paths and returns their statements in the order of their ids.
+     */
+    private static @NotNull List<List<RequireStatement>> intern(
+            final @NotNull Map<Path, List<RequireStatement>> parsedFiles,
+            final @NotNull PathTable paths) {
+        final var sortedFiles = new ArrayList<>(parsedFiles.entrySet());
+        sortedFiles.sort(Comparator.comparing(parsedFile -> parsedFile.getKey().toString()));
+
+        final var statements = new ArrayList<List<RequireStatement>>(parsedFiles.size());
+        for (final var parsedFile : sortedFiles) {
+            paths.intern(parsedFile.getKey().toString());
+            statements.add(parsedFile.getValue());
+        }
+        return statements;
+    }
+
+    /**
+     * Turns the path of a 'require' statement into the path the walk gives the file it points to.
+     * @param rootDirectory The root directory the path is relative to.
+     * @param requirePath The path of the statement.
+     * @return The path of the file or null if the path is invalid or leaves the root directory.
+     */
+    public static @Nullable String resolvePath(final @NotNull Path rootDirectory, final @NotNull String requirePath) {
+        final var relativePath = normalizePath(requirePath);
+        return relativePath == null ? null : rootDirectory.resolve(relativePath).toString();
+    }
+
+    /**
+     * Normalizes the path of a 'require' statement on its own, without touching the filesystem,
+     * so 'dir/./file' and 'other/../dir/file' become 'dir/file'.
+     * The result uses '/' separators, which every file system a root can be on accepts.
+     * @param requirePath The path of the statement.
+     * @return The normalized path relative to the root directory
+     * or null if the path is invalid or leaves the root directory.
+     */
+    public static @Nullable String normalizePath(final @NotNull String requirePath) {
+        final Path relativePath;
+        try {
+            relativePath = Path.of(requirePath).normalize();
+        } catch (final InvalidPathException e) {
+            return null;
+        }
+
+        if (relativePath.isAbsolute() || relativePath.startsWith("..")) {
+            return null;
+        }
+
+        final var normalizedPath = new StringBuilder();
+        for (final var name : relativePath) {
+            if (!normalizedPath.isEmpty()) {
+                normalizedPath.append('/');
+            }
+            normalizedPath.append(name);
+        }
+        return normalizedPath.toString();
+    }
+
+    /**
+     * Returns the id of the given file.
+     * @param file The file.
+     * @return The id of the file or -1 if it is not in the graph.
+     */
+    public int find(final @NotNull Path file) {
+        return paths.find(file.toString());
+    }
+
+    /**
+     * Extracts the files reachable from the given entries, that is the entries and their transitive
+     * dependencies, into a graph of their own. The ids of the new graph are local to it
+     * and keep the order of the ids in this graph.
+     * @param entries The ids of the entry files.
+     * @return The graph of the closure.
+     */
+    public @NotNull DependencyGraph closureOf(final int @NotNull ... entries) {
+        final var localIds = new int[paths.size()];
+        Arrays.fill(localIds, -1);
+
+        // Breadth-first search marks the reached nodes with 0, the local ids are assigned afterwards.
+        var queue = new int[Math.max(16, entries.length)];
+        int queueSize = 0;
+        for (final int entry : entries) {
+            if (localIds[entry] == -1) {
+                localIds[entry] = 0;
+                if (queueSize == queue.length) {
+                    queue = Arrays.copyOf(queue, queueSize * 2);
+                }
+                queue[queueSize++] = entry;
+            }
+        }
+
+        int closureEdgeCount = 0;
+        for (int head = 0; head < queueSize; ++head) {
+            final int node = queue[head];
+            closureEdgeCount += dependencyOffsets[node + 1] - dependencyOffsets[node];
+            for (int i = dependencyOffsets[node]; i < dependencyOffsets[node + 1]; ++i) {
+                final int dependency = dependencies[i];
+                if (localIds[dependency] == -1) {
+                    localIds[dependency] = 0;
+                    if (queueSize == queue.length) {
+                        queue = Arrays.copyOf(queue, queueSize * 2);
+                    }
+                    queue[queueSize++] = dependency;
+                }
+            }
+        }
+
+        Arrays.sort(queue, 0, queueSize);
+        final var closurePaths = new PathTable(Math.max(16, queueSize));
+        for (int localId = 0; localId < queueSize; ++localId) {
+            localIds[queue[localId]] = closurePaths.intern(paths.get(queue[localId]));
+        }
+
+        final var closureOffsets = new int[queueSize + 1];
+        final var closureDependencies = new int[closureEdgeCount];
+        int edgeCount = 0;
+        for (int localId = 0; localId < queueSize; ++localId) {
+            final int node = queue[localId];
+            for (int i = dependencyOffsets[node]; i < dependencyOffsets[node + 1]; ++i) {
+                closureDependencies[edgeCount++] = localIds[dependencies[i]];
+            }
+            closureOffsets[localId + 1] = edgeCount;
+        }
+
+        return new DependencyGraph(fileSystem, closurePaths, closureOffsets, closureDependencies);
+    }
+
+    /**
+     * Returns the number of files in the graph.
+     * @return The number of files.
+     */
+    public int getNodeCount() {
+        return paths.size();
+    }
+
+    /**
+     * Returns the number of resolved dependencies in the graph.
+     * @return The number of edges.
+     */
+    public int getEdgeCount() {
+        return dependencies.length;
+    }
+
+    /**
+     * Returns the path of the file with the given id.
+     * @param id The id of the file.
+     * @return The path of the file.
+     */
+    public @NotNull String getPath(final int id) {
+        return paths.get(id);
+    }
+
+    /**
+     * Creates a sorter over the graph.
+     * @return A new sorter.
+     */
+    public @NotNull IndexedTopologicalSorter newSorter() {
+        return new IndexedTopologicalSorter(paths.size(), dependencyOffsets, dependencies);
+    }
+
+    /**
+     * Turns the given ids back into files of the root's file system.
+     * @param ids The ids of files.
+     * @return The files in the same order.
+     */
+    public @NotNull List<Path> toFiles(final int @NotNull [] ids) {
+        final var files = new ArrayList<Path>(ids.length);
+        for (final int id : ids) {
+            files.add(fileSystem.getPath(paths.get(id)));
+        }
+        return files;
+    }
+}
@@ -0,0 +1,137 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A single problem found by the validation of a root directory, see {@link ValidationReport}.
+ * Diagnostics are ordered by file, line and kind, so a report reads like compiler output
+ * and is the same on every run no matter in which order the files were walked.
+ */
+public class Diagnostic implements Comparable<Diagnostic> {
+    private static final Comparator<Diagnostic> ORDER = Comparator.comparing(Diagnostic::getPath)
+            .thenComparingInt(Diagnostic::getLineNumber)
+            .thenComparing(Diagnostic::getKind)
+            .thenComparing(Diagnostic::getMessage);
+
+    /**
+     * The kinds of problems a validation reports.
+     */
+    public enum Kind {
+        /** A file could not be read. */
+        UNREADABLE_FILE,
+        /** A 'require' statement could not be parsed. */
+        INVALID_STATEMENT,
+        /** A 'require' statement points to something that is not a file. */
+        INVALID_REQUIRE,
+        /** A 'require' statement points to a file that was not analyzed. */
+        MISSING_DEPENDENCY,
+        /** Files require each other in a cycle, see {@link #getCycle()}. */
+        CIRCULAR_DEPENDENCY
+    }
+
+    private final Kind kind;
+    private final String path;
+    private final int lineNumber;
+    private final String message;
+    private final List<String> cycle;
+
+    private Diagnostic(final @NotNull Kind kind,
+                       final @NotNull String path,
+                       final int lineNumber,
+                       final @NotNull String message,
+                       final @Nullable List<String> cycle) {
+        this.kind = kind;
+        this.path = path;
+        this.lineNumber = lineNumber;
+        this.message = message;
+        this.cycle = cycle;
+    }
+
+    /**
+     * Constructs a new diagnostic of a file.
+     * @param kind The kind of the problem.
+     * @param path The path of the file.
+     * @param lineNumber The 1-based number of the line of the problem or 0 if it is about the whole file.
+     * @param message The description of the problem.
+     * @return The diagnostic.
+     */
+    public static @NotNull Diagnostic of(final @NotNull Kind kind,
+                                         final @NotNull String path,
+                                         final int lineNumber,
+                                         final @NotNull String message) {
+        return new Diagnostic(kind, path, lineNumber, message, null);
+    }
+
+    /**
+     * Constructs a new diagnostic of a circular dependency. It is reported on the first file of the cycle.
+     * @param cycle The paths of the files of the cycle: every file requires the next one
+     *              and the last file requires the first one.
+     * @param lineNumber The line of the 'require' statement of the first file that starts the cycle or 0.
+     * @return The diagnostic.
+     */
+    public static @NotNull Diagnostic cycle(final @NotNull List<String> cycle, final int lineNumber) {
+        final var message = new StringBuilder("Circular dependency: ");
+        for (final var file : cycle) {
+            message.append(file).append(" -> ");
+        }
+        message.append(cycle.get(0));
+        return new Diagnostic(Kind.CIRCULAR_DEPENDENCY, cycle.get(0), lineNumber, message.toString(),
+                List.copyOf(cycle));
+    }
+
+    /**
+     * Returns the kind of the problem.
+     * @return The kind.
+     */
+    public @NotNull Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the path of the file the problem is in.
+     * @return The path.
+     */
+    public @NotNull String getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the 1-based number of the line of the problem.
+     * @return The line number or 0 if the problem is about the whole file.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Returns the description of the problem.
+     * @return The message.
+     */
+    public @NotNull String getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns the paths of the files of the cycle if the problem is a circular dependency.
+     * @return The cycle or null.
+     */
+    public @Nullable List<String> getCycle() {
+        return cycle;
+    }
+
+    @Override
+    public int compareTo(final @NotNull Diagnostic other) {
+        return ORDER.compare(this, other);
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return lineNumber == 0
+                ? String.format("(%s) %s", path, message)
+                : String.format("(%s:%d) %s", path, lineNumber, message);
+    }
+}
@@ -0,0 +1,213 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Watches the root directory for changes and keeps the parsed files up to date.
+ * Only the files that changed are parsed again, after which the rebuild callback is called
+ * with the updated 'require' statements of every file.
+ * The edges are intentionally not patched in place: the callback resolves and sorts the whole in-memory graph
+ * again, which costs a fraction of reading the files and can never drift out of sync with them.
+ * Bursts of events are debounced: the rebuild happens once no events arrived for a short while.
+ */
+public class DirectoryWatcher {
+    private static final long DEBOUNCE_MILLIS = 200;
+
+    private final Path rootPath;
+    private final Set<Path> ignoredFiles;
+    private final IgnoreRules ignoreRules;
+    private final Function<Path, List<RequireStatement>> parser;
+    private final Consumer<Map<Path, List<RequireStatement>>> rebuild;
+
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+
+    /**
+     * Constructs a new watcher.
+     * @param rootDirectory The root directory to watch.
+     * @param ignoredFiles The files whose changes should be ignored, such as the output file.
+     * @param ignoreRules The rules of files and directories that are excluded from the walk, these are not watched.
+     * @param parser The parser of changed files, returns null if the file can't be read.
+     * @param rebuild The callback to call with the 'require' statements of every file after a change.
+     */
+    public DirectoryWatcher(final @NotNull Path rootDirectory,
+                            final @NotNull Set<Path> ignoredFiles,
+                            final @NotNull IgnoreRules ignoreRules,
+                            final @NotNull Function<Path, List<RequireStatement>> parser,
+                            final @NotNull Consumer<Map<Path, List<RequireStatement>>> rebuild) {
+        this.rootPath = rootDirectory;
+        this.ignoredFiles = ignoredFiles;
+        this.ignoreRules = ignoreRules;
+        this.parser = parser;
+        this.rebuild = rebuild;
+    }
+
+    /**
+     * Watches the root directory until the thread is interrupted.
+     * @param parsedFiles The 'require' statements of every file in the root directory at the moment.
+     * @throws IOException if the root directory can't be watched.
+     * @throws InterruptedException if the thread was interrupted while waiting for changes.
+     */
+    public void watch(final @NotNull Map<Path, List<RequireStatement>> parsedFiles)
+            throws IOException, InterruptedException {
+        final var files = new HashMap<>(parsedFiles);
+
+        try (final var watchService = rootPath.getFileSystem().newWatchService()) {
+            registerDirectories(watchService, rootPath);
+
+            while (true) {
+                final var changedPaths = new LinkedHashSet<Path>();
+                boolean isOverflow = collectEvents(watchService.take(), changedPaths);
+
+                // Wait until the burst of events is over.
+                WatchKey key;
+                while ((key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    isOverflow |= collectEvents(key, changedPaths);
+                }
+
+                final boolean isChanged;
+                if (isOverflow) {
+                    // Some events were lost, the only way to catch up is to look at everything again.
+                    files.clear();
+                    registerDirectories(watchService, rootPath);
+                    parseDirectory(rootPath, files);
+                    isChanged = true;
+                } else {
+                    isChanged = applyChanges(watchService, changedPaths, files);
+                }
+
+                if (isChanged) {
+                    rebuild.accept(files);
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the paths of the key's events and resets the key.
+     * @return True if some events were lost.
+     */
+    private boolean collectEvents(final @NotNull WatchKey key, final @NotNull Set<Path> changedPaths) {
+        final var directory = watchedDirectories.get(key);
+        boolean isOverflow = false;
+
+        for (final var event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                isOverflow = true;
+            } else if (directory != null) {
+                changedPaths.add(directory.resolve((Path) event.context()));
+            }
+        }
+
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+        }
+
+        return isOverflow;
+    }
+
+    /**
+     * Updates the parsed files according to the changed paths.
+     * @return True if any of the files in the root directory changed.
+     */
+    private boolean applyChanges(final @NotNull WatchService watchService,
+                                 final @NotNull Set<Path> changedPaths,
+                                 final @NotNull Map<Path, List<RequireStatement>> files) throws IOException {
+        boolean isChanged = false;
+
+        for (final var path : changedPaths) {
+            final boolean isDirectory = Files.isDirectory(path);
+            // Changes only come from watched directories, so it is enough to check the path itself.
+            if (ignoredFiles.contains(path) || isIgnored(path, isDirectory)) {
+                continue;
+            }
+
+            if (isDirectory) {
+                // Only new directories are interesting, changes inside known ones arrive as separate events.
+                if (!watchedDirectories.containsValue(path)) {
+                    registerDirectories(watchService, path);
+                    parseDirectory(path, files);
+                    isChanged = true;
+                }
+            } else if (Files.isRegularFile(path)) {
+                final var statements = parser.apply(path);
+                if (statements != null) {
+                    files.put(path, statements);
+                } else {
+                    files.remove(path);
+                }
+                isChanged = true;
+            } else {
+                // The path was deleted, it might have been a whole directory.
+                isChanged |= files.remove(path) != null;
+                isChanged |= files.keySet().removeIf(knownFile -> knownFile.startsWith(path));
+            }
+        }
+
+        return isChanged;
+    }
+
+    private void registerDirectories(final @NotNull WatchService watchService,
+                                     final @NotNull Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path directory, final BasicFileAttributes attributes)
+                    throws IOException {
+                if (!directory.equals(start) && isIgnored(directory, true)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+
+                final var key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                watchedDirectories.put(key, directory);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(final Path file, final IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void parseDirectory(final @NotNull Path start,
+                                final @NotNull Map<Path, List<RequireStatement>> files) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path directory, final BasicFileAttributes attributes) {
+                return !directory.equals(start) && isIgnored(directory, true)
+                        ? FileVisitResult.SKIP_SUBTREE
+                        : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path path, final BasicFileAttributes attributes) {
+                if (attributes.isRegularFile() && !ignoredFiles.contains(path) && !isIgnored(path, false)) {
+                    final var statements = parser.apply(path);
+                    if (statements != null) {
+                        files.put(path, statements);
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(final Path file, final IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private boolean isIgnored(final @NotNull Path path, final boolean isDirectory) {
+        final var relativePath = rootPath.relativize(path).toString().replace(File.separatorChar, '/');
+        return ignoreRules.isIgnored(relativePath, isDirectory);
+    }
+}
@@ -8,7 +8,7 @@ public class ErrorOr<T> {
     private final T value;
     private final String error;
 
-    private ErrorOr(final T value, final String error) {
+    protected ErrorOr(final T value, final String error) {
         this.value = value;
         this.error = error;
     }
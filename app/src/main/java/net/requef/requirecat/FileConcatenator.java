@@ -0,0 +1,482 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Concatenates files at the byte level, without decoding them into strings.
+ * The output is the same as reading every file line by line with {@link java.util.Scanner#nextLine()}
+ * and writing each line followed by the system line separator:
+ * every line terminator recognised by the scanner ("\r\n", "\n", "\r" and UTF-8 encoded
+ * U+0085, U+2028, U+2029) is replaced with the system line separator and the last line
+ * is always terminated.
+ * Runs of bytes that need no rewriting are copied with {@link FileChannel#transferTo}.
+ * Files of other file systems, e.g. entries of a zip archive, are streamed through a buffer instead.
+ * Files are assumed to be UTF-8 (or ASCII) encoded.
+ */
+public class FileConcatenator {
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private static final boolean LF_IS_SEPARATOR = "\n".equals(System.lineSeparator());
+    private static final boolean CRLF_IS_SEPARATOR = "\r\n".equals(System.lineSeparator());
+    private static final boolean CR_IS_SEPARATOR = "\r".equals(System.lineSeparator());
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+    private static final int READER_COUNT = Math.max(4, Runtime.getRuntime().availableProcessors());
+    // The largest heap array the JVM reliably allocates.
+    private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+
+    private static final ThreadLocal<ByteBuffer> scanBuffers =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(SCAN_BUFFER_SIZE));
+
+    // Scanner states for terminators that can't be recognised by a single byte.
+    private static final int STATE_NONE = 0;
+    private static final int STATE_CR = 1;
+    private static final int STATE_C2 = 2;
+    private static final int STATE_E2 = 3;
+    private static final int STATE_E2_80 = 4;
+
+    /**
+     * Writes the given files one after another into the output channel.
+     * @param files The files to concatenate.
+     * @param output The channel to write to.
+     * @throws IOException if any file can't be read or the output can't be written.
+     */
+    public static void concatenate(final @NotNull List<Path> files,
+                                   final @NotNull WritableByteChannel output) throws IOException {
+        concatenate(files, output, 0, index -> { });
+    }
+
+    /**
+     * Writes the given files one after another into the output channel,
+     * reading the upcoming files ahead on a pool of reader threads.
+     * At most readAheadBytes bytes of file contents are held in memory at once;
+     * files larger than that (or than the largest possible buffer) are streamed directly when their turn comes.
+     * Helps when opening and reading files is slow, e.g. on network storage or a cold cache.
+     * @param files The files to concatenate.
+     * @param output The channel to write to.
+     * @param readAheadBytes The memory budget of the read-ahead, if not positive, no files are read ahead.
+     * @throws IOException if any file can't be read or the output can't be written.
+     */
+    public static void concatenate(final @NotNull List<Path> files,
+                                   final @NotNull WritableByteChannel output,
+                                   final long readAheadBytes) throws IOException {
+        concatenate(files, output, readAheadBytes, index -> { });
+    }
+
+    /**
+     * Writes the given files one after another into the output channel, reading them ahead as
+     * {@link #concatenate(List, WritableByteChannel, long)} does, and reports every written file to the listener.
+     * @param files The files to concatenate.
+     * @param output The channel to write to.
+     * @param readAheadBytes The memory budget of the read-ahead, if not positive, no files are read ahead.
+     * @param listener The listener to call after every file is written.
+     * @throws IOException if any file can't be read, the output can't be written or the listener fails.
+     */
+    public static void concatenate(final @NotNull List<Path> files,
+                                   final @NotNull WritableByteChannel output,
+                                   final long readAheadBytes,
+                                   final @NotNull FileListener listener) throws IOException {
+        if (readAheadBytes <= 0 || files.size() < 2) {
+            for (int i = 0; i < files.size(); ++i) {
+                final var file = files.get(i);
+                final var event = beginFileEvent();
+                appendFile(file, output);
+                commitFileEvent(event, file);
+                listener.onFileWritten(i);
+            }
+            return;
+        }
+
+        final ExecutorService readers = Executors.newFixedThreadPool(Math.min(READER_COUNT, files.size()), runnable -> {
+            final var thread = new Thread(runnable, "RequireCat-Reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            // The reorder buffer: the contents of files are written strictly in the order of the list.
+            final var prefetched = new ArrayList<CompletableFuture<ByteBuffer>>(files.size());
+            final var reservedBytes = new long[files.size()];
+            long availableBytes = readAheadBytes;
+            // A file is read into a single heap buffer, so larger files are streamed whatever the budget is.
+            final long maxReadAheadFileSize = Math.min(readAheadBytes, MAX_BUFFER_SIZE);
+
+            for (int i = 0; i < files.size(); ++i) {
+                // Only the writer thread reserves and releases the budget, in the order of the files,
+                // so the file being written has always been read or is streamed directly.
+                while (prefetched.size() < files.size()) {
+                    final int next = prefetched.size();
+                    final var file = files.get(next);
+                    final long size = Files.size(file);
+
+                    if (size > maxReadAheadFileSize) {
+                        prefetched.add(CompletableFuture.completedFuture(null));
+                        continue;
+                    }
+                    if (size > availableBytes) {
+                        break;
+                    }
+
+                    availableBytes -= size;
+                    reservedBytes[next] = size;
+                    prefetched.add(CompletableFuture.supplyAsync(() -> readFully(file, size), readers));
+                }
+
+                final var file = files.get(i);
+                final var event = beginFileEvent();
+                final var content = await(prefetched.get(i));
+                prefetched.set(i, null);
+
+                if (content == null) {
+                    appendFile(file, output);
+                } else {
+                    final var normalizer = new LineNormalizer(output, (start, end) ->
+                            writeFully(output, content.duplicate().position((int) start).limit((int) end)));
+                    normalizer.feed(content, 0);
+                    normalizer.finish(content.limit());
+                }
+
+                availableBytes += reservedBytes[i];
+                commitFileEvent(event, file);
+                listener.onFileWritten(i);
+            }
+        } finally {
+            readers.shutdownNow();
+        }
+    }
+
+    /**
+     * Copies the whole input channel into the output channel, normalizing line terminators.
+     * @param input The channel to read from.
+     * @param output The channel to write to.
+     * @throws IOException if the input can't be read or the output can't be written.
+     */
+    public static void append(final @NotNull FileChannel input,
+                              final @NotNull WritableByteChannel output) throws IOException {
+        final var buffer = scanBuffers.get();
+        final var normalizer = new LineNormalizer(output, (start, end) -> transfer(input, output, start, end));
+        final long size = input.size();
+
+        long position = 0;
+        while (position < size) {
+            buffer.clear();
+            final int read = input.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            buffer.flip();
+
+            normalizer.feed(buffer, position);
+            position += read;
+        }
+
+        normalizer.finish(position);
+    }
+
+    /**
+     * Copies the whole input channel into the output channel, normalizing line terminators.
+     * The input is read once from start to end, so any channel works, e.g. an entry of a zip archive
+     * that is inflated on the fly. Bytes are copied from the buffer the input is read into.
+     * @param input The channel to read from.
+     * @param output The channel to write to.
+     * @throws IOException if the input can't be read or the output can't be written.
+     */
+    public static void append(final @NotNull ReadableByteChannel input,
+                              final @NotNull WritableByteChannel output) throws IOException {
+        if (input instanceof FileChannel fileChannel) {
+            append(fileChannel, output);
+            return;
+        }
+
+        final var buffer = scanBuffers.get();
+        // The bytes of a terminator that started in the previous chunk and is not recognised yet.
+        final var carry = ByteBuffer.allocate(4);
+        final var carryStart = new long[1];
+        final var chunkStart = new long[1];
+        final var normalizer = new LineNormalizer(output, (start, end) -> {
+            if (start < chunkStart[0]) {
+                final long carryEnd = Math.min(end, chunkStart[0]);
+                writeFully(output, carry.duplicate()
+                        .limit((int) (carryEnd - carryStart[0]))
+                        .position((int) (start - carryStart[0])));
+                start = carryEnd;
+            }
+            if (start < end) {
+                writeFully(output, buffer.duplicate()
+                        .limit((int) (end - chunkStart[0]))
+                        .position((int) (start - chunkStart[0])));
+            }
+        });
+
+        long position = 0;
+        while (true) {
+            buffer.clear();
+            final int read = input.read(buffer);
+            if (read < 0) {
+                break;
+            }
+            buffer.flip();
+
+            chunkStart[0] = position;
+            normalizer.feed(buffer, position);
+            position += read;
+
+            // The buffer is reused for the next chunk: copy everything that is final and keep the rest.
+            final long keptStart = normalizer.flushRun(position);
+            final var kept = ByteBuffer.allocate((int) (position - keptStart));
+            for (long i = keptStart; i < position; ++i) {
+                kept.put(i < chunkStart[0]
+                        ? carry.get((int) (i - carryStart[0]))
+                        : buffer.get((int) (i - chunkStart[0])));
+            }
+            carry.clear().put(kept.flip()).flip();
+            carryStart[0] = keptStart;
+        }
+
+        chunkStart[0] = position;
+        normalizer.finish(position);
+    }
+
+    private static void appendFile(final @NotNull Path file,
+                                   final @NotNull WritableByteChannel output) throws IOException {
+        try (final var input = Files.newByteChannel(file)) {
+            append(input, output);
+        }
+    }
+
+    /**
+     * Reads the whole file into memory.
+     * Returns null if the file grew past the expected size, so it has to be streamed instead.
+     */
+    private static @Nullable ByteBuffer readFully(final @NotNull Path file, final long expectedSize) {
+        try (final var input = Files.newByteChannel(file)) {
+            if (input.size() > expectedSize) {
+                return null;
+            }
+
+            final var content = ByteBuffer.allocate((int) expectedSize);
+            while (content.hasRemaining() && input.read(content) >= 0) {
+                // Keep reading until the buffer is full or the file ends.
+            }
+            return content.flip();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static @Nullable ByteBuffer await(final @NotNull CompletableFuture<ByteBuffer> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading ahead", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException unchecked) {
+                throw unchecked.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static @NotNull SlowFileEvent beginFileEvent() {
+        final var event = new SlowFileEvent();
+        event.begin();
+        return event;
+    }
+
+    private static void commitFileEvent(final @NotNull SlowFileEvent event, final @NotNull Path file) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = file.toString();
+            event.operation = "write";
+            event.commit();
+        }
+    }
+
+    private static void transfer(final @NotNull FileChannel input,
+                                 final @NotNull WritableByteChannel output,
+                                 long start,
+                                 final long end) throws IOException {
+        while (start < end) {
+            final long transferred = input.transferTo(start, end - start, output);
+            if (transferred <= 0) {
+                throw new IOException("Input ended unexpectedly while copying it");
+            }
+            start += transferred;
+        }
+    }
+
+    private static void writeFully(final @NotNull WritableByteChannel output,
+                                   final @NotNull ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
+        }
+    }
+
+    /**
+     * Receives the progress of a concatenation.
+     */
+    public interface FileListener {
+        /**
+         * Called right after a file has been fully written to the output.
+         * @param index The index of the file in the concatenated list.
+         * @throws IOException if the listener fails, which aborts the concatenation.
+         */
+        void onFileWritten(int index) throws IOException;
+    }
+
+    /**
+     * Copies the range [start, end) of the input to the output.
+     */
+    private interface RangeCopier {
+        void copy(long start, long end) throws IOException;
+    }
+
+    /**
+     * Finds line terminators in the input, which is fed to it chunk by chunk.
+     * Runs of bytes that need no rewriting are copied with the range copier,
+     * every other terminator is replaced with the system line separator.
+     */
+    private static class LineNormalizer {
+        private final WritableByteChannel output;
+        private final RangeCopier copier;
+
+        private long runStart = 0;
+        private long lineStart = 0;
+        private long pendingStart = 0;
+        private int state = STATE_NONE;
+
+        LineNormalizer(final @NotNull WritableByteChannel output, final @NotNull RangeCopier copier) {
+            this.output = output;
+            this.copier = copier;
+        }
+
+        /**
+         * Scans the next chunk of the input.
+         * @param chunk The chunk, from its position to its limit.
+         * @param chunkStart The position of the chunk in the input.
+         */
+        void feed(final @NotNull ByteBuffer chunk, final long chunkStart) throws IOException {
+            final int offset = chunk.position();
+            final int limit = chunk.limit();
+
+            for (int i = offset; i < limit; ++i) {
+                final long position = chunkStart + i - offset;
+                final byte b = chunk.get(i);
+
+                // Finish terminators that started on a previous byte.
+                if (state == STATE_CR) {
+                    state = STATE_NONE;
+                    if (b == '\n') {
+                        onTerminator(pendingStart, position + 1, CRLF_IS_SEPARATOR);
+                        continue;
+                    }
+                    onTerminator(pendingStart, position, CR_IS_SEPARATOR);
+                } else if (state == STATE_C2) {
+                    state = STATE_NONE;
+                    if (b == (byte) 0x85) {
+                        onTerminator(pendingStart, position + 1, false);
+                        continue;
+                    }
+                } else if (state == STATE_E2) {
+                    if (b == (byte) 0x80) {
+                        state = STATE_E2_80;
+                        continue;
+                    }
+                    state = STATE_NONE;
+                } else if (state == STATE_E2_80) {
+                    state = STATE_NONE;
+                    if (b == (byte) 0xA8 || b == (byte) 0xA9) {
+                        onTerminator(pendingStart, position + 1, false);
+                        continue;
+                    }
+                }
+
+                switch (b) {
+                    case '\n' -> onTerminator(position, position + 1, LF_IS_SEPARATOR);
+                    case '\r' -> {
+                        state = STATE_CR;
+                        pendingStart = position;
+                    }
+                    case (byte) 0xC2 -> {
+                        state = STATE_C2;
+                        pendingStart = position;
+                    }
+                    case (byte) 0xE2 -> {
+                        state = STATE_E2;
+                        pendingStart = position;
+                    }
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        /**
+         * Copies the run up to the given position of the input, except for the bytes of a terminator
+         * that is not recognised yet, so the input before the returned position is no longer needed.
+         * @param position The position the input has been fed up to.
+         * @return The position of the first byte that may still be copied.
+         */
+        long flushRun(final long position) throws IOException {
+            final long end = state == STATE_NONE ? position : pendingStart;
+            if (runStart < end) {
+                copier.copy(runStart, end);
+                runStart = end;
+            }
+            return runStart;
+        }
+
+        /**
+         * Copies the rest of the input and terminates the last line.
+         * @param size The size of the whole input.
+         */
+        void finish(final long size) throws IOException {
+            // A lone '\r' at the end of the input is a terminator on its own.
+            if (state == STATE_CR) {
+                state = STATE_NONE;
+                onTerminator(pendingStart, size, CR_IS_SEPARATOR);
+            }
+
+            copier.copy(runStart, size);
+
+            // The last line is always terminated.
+            if (lineStart < size) {
+                writeFully(output, ByteBuffer.wrap(LINE_SEPARATOR));
+            }
+        }
+
+        /**
+         * Handles a line terminator occupying [terminatorStart, terminatorEnd) of the input.
+         * If the terminator differs from the system line separator, the pending run is copied
+         * and the separator is written in place of the terminator.
+         */
+        private void onTerminator(final long terminatorStart,
+                                  final long terminatorEnd,
+                                  final boolean isLineSeparator) throws IOException {
+            lineStart = terminatorEnd;
+            if (isLineSeparator) {
+                return;
+            }
+
+            copier.copy(runStart, terminatorStart);
+            writeFully(output, ByteBuffer.wrap(LINE_SEPARATOR));
+            runStart = terminatorEnd;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Gitignore-style rules that exclude files and directories of the root directory from the walk.
+ * Every pattern is matched against a path relative to the root directory with '/' separators:
+ * <ul>
+ *     <li>a pattern without a '/' matches the name of a file or directory at any depth;</li>
+ *     <li>a pattern with a '/' at the start or in the middle matches the whole relative path;</li>
+ *     <li>a pattern ending with '/' only matches directories;</li>
+ *     <li>'*' matches anything but '/', '?' a single character other than '/', '[...]' a character class,
+ *     '**' any number of directories;</li>
+ *     <li>a pattern starting with '!' re-includes what earlier patterns excluded;</li>
+ *     <li>blank lines and lines starting with '#' are skipped.</li>
+ * </ul>
+ * The last matching pattern wins. As in git, a file inside an excluded directory can't be re-included,
+ * because the directory is never listed.
+ * Patterns are compiled once: plain names are compared as strings, '*.ext' patterns by suffix
+ * and only the rest go through regular expressions.
+ */
+public class IgnoreRules {
+    /**
+     * The name of the file with the rules in the root directory.
+     */
+    public static final String FILE_NAME = ".requirecatignore";
+
+    private static final IgnoreRules NONE = new IgnoreRules(List.of());
+
+    private final List<Rule> rules;
+
+    private IgnoreRules(final @NotNull List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Returns the rules that ignore nothing.
+     * @return The empty rules.
+     */
+    public static @NotNull IgnoreRules none() {
+        return NONE;
+    }
+
+    /**
+     * Compiles the given patterns.
+     * @param patterns The patterns, in the order of their precedence: later patterns override earlier ones.
+     * @return The compiled rules or an error if a pattern is malformed, e.g. has a character class like '[z-a]'.
+     */
+    public static @NotNull ErrorOr<IgnoreRules> compile(final @NotNull List<String> patterns) {
+        final var rules = new ArrayList<Rule>();
+        for (final var pattern : patterns) {
+            final Rule rule;
+            try {
+                rule = Rule.compile(pattern);
+            } catch (final PatternSyntaxException e) {
+                return ErrorOr.error("'%s' is not a valid ignore pattern: %s", pattern, e.getDescription());
+            }
+            if (rule != null) {
+                rules.add(rule);
+            }
+        }
+        return ErrorOr.ok(rules.isEmpty() ? NONE : new IgnoreRules(List.copyOf(rules)));
+    }
+
+    /**
+     * Returns whether there are no rules, so nothing is ever ignored.
+     * @return Whether the rules are empty.
+     */
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    /**
+     * Checks whether a file or a directory is ignored by the rules themselves,
+     * without looking at the directories it is in.
+     * @param relativePath The path relative to the root directory, with '/' separators.
+     * @param isDirectory Whether the path is a directory.
+     * @return True if the path is ignored.
+     */
+    public boolean isIgnored(final @NotNull String relativePath, final boolean isDirectory) {
+        if (rules.isEmpty()) {
+            return false;
+        }
+
+        final var name = relativePath.substring(relativePath.lastIndexOf('/') + 1);
+        for (int i = rules.size() - 1; i >= 0; --i) {
+            final var rule = rules.get(i);
+            if ((!rule.isDirectoryOnly || isDirectory) && rule.matches(relativePath, name)) {
+                return !rule.isNegated;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a file is ignored by the rules or is inside an ignored directory.
+     * @param relativePath The path of the file relative to the root directory, with '/' separators.
+     * @return True if the file is ignored.
+     */
+    public boolean isFileIgnored(final @NotNull String relativePath) {
+        if (rules.isEmpty()) {
+            return false;
+        }
+
+        for (int end = relativePath.indexOf('/'); end != -1; end = relativePath.indexOf('/', end + 1)) {
+            if (isIgnored(relativePath.substring(0, end), true)) {
+                return true;
+            }
+        }
+        return isIgnored(relativePath, false);
+    }
+
+    /**
+     * A single compiled pattern.
+     */
+    private static class Rule {
+        private final boolean isNegated;
+        private final boolean isDirectoryOnly;
+        private final boolean isAnchored;
+        // Exactly one way of matching is set.
+        private final @Nullable String name;
+        private final @Nullable String suffix;
+        private final @Nullable Pattern pattern;
+
+        private Rule(final boolean isNegated,
+                     final boolean isDirectoryOnly,
+                     final boolean isAnchored,
+                     final @Nullable String name,
+                     final @Nullable String suffix,
+                     final @Nullable Pattern pattern) {
+            this.isNegated = isNegated;
+            this.isDirectoryOnly = isDirectoryOnly;
+            this.isAnchored = isAnchored;
+            this.name = name;
+            this.suffix = suffix;
+            this.pattern = pattern;
+        }
+
+        static @Nullable Rule compile(final @NotNull String line) {
+            var pattern = line.stripTrailing();
+            if (pattern.isEmpty() || pattern.startsWith("#")) {
+                return null;
+            }
+
+            final boolean isNegated = pattern.startsWith("!");
+            if (isNegated || pattern.startsWith("\\!") || pattern.startsWith("\\#")) {
+                pattern = pattern.substring(1);
+            }
+
+            final boolean isDirectoryOnly = pattern.endsWith("/");
+            if (isDirectoryOnly) {
+                pattern = pattern.substring(0, pattern.length() - 1);
+            }
+
+            final boolean isAnchored = pattern.contains("/");
+            if (pattern.startsWith("/")) {
+                pattern = pattern.substring(1);
+            }
+            if (pattern.isEmpty()) {
+                return null;
+            }
+
+            if (!isAnchored && !hasWildcards(pattern)) {
+                return new Rule(isNegated, isDirectoryOnly, false, pattern, null, null);
+            }
+            if (!isAnchored && pattern.startsWith("*") && !hasWildcards(pattern.substring(1))) {
+                return new Rule(isNegated, isDirectoryOnly, false, null, pattern.substring(1), null);
+            }
+            return new Rule(isNegated, isDirectoryOnly, isAnchored, null, null, Pattern.compile(toRegex(pattern)));
+        }
+
+        boolean matches(final @NotNull String relativePath, final @NotNull String fileName) {
+            if (name != null) {
+                return name.equals(fileName);
+            }
+            if (suffix != null) {
+                return fileName.endsWith(suffix);
+            }
+            assert pattern != null;
+            return pattern.matcher(isAnchored ? relativePath : fileName).matches();
+        }
+
+        private static boolean hasWildcards(final @NotNull String pattern) {
+            for (int i = 0; i < pattern.length(); ++i) {
+                final char c = pattern.charAt(i);
+                if (c == '*' || c == '?' || c == '[' || c == '\\') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static @NotNull String toRegex(final @NotNull String pattern) {
+            final var regex = new StringBuilder();
+            int i = 0;
+            while (i < pattern.length()) {
+                final char c = pattern.charAt(i);
+                if (pattern.startsWith("**/", i) && (i == 0 || pattern.charAt(i - 1) == '/')) {
+                    // Zero or more leading directories.
+                    regex.append("(?:.*/)?");
+                    i += 3;
+                } else if (pattern.startsWith("**", i) && i + 2 == pattern.length()
+                        && (i == 0 || pattern.charAt(i - 1) == '/')) {
+                    // Everything inside.
+                    regex.append(".*");
+                    i += 2;
+                } else if (c == '*') {
+                    regex.append("[^/]*");
+                    ++i;
+                } else if (c == '?') {
+                    regex.append("[^/]");
+                    ++i;
+                } else if (c == '[' && pattern.indexOf(']', i + 2) != -1) {
+                    final int end = pattern.indexOf(']', i + 2);
+                    var characterClass = pattern.substring(i + 1, end);
+                    if (characterClass.startsWith("!")) {
+                        characterClass = "^" + characterClass.substring(1);
+                    }
+                    regex.append('[').append(characterClass.replace("\\", "\\\\").replace("[", "\\[")).append(']');
+                    i = end + 1;
+                } else if (c == '\\' && i + 1 < pattern.length()) {
+                    regex.append(Pattern.quote(String.valueOf(pattern.charAt(i + 1))));
+                    i += 2;
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                    ++i;
+                }
+            }
+            return regex.toString();
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Iterative topological sorter (Kahn's algorithm) over a graph of dense int ids.
+ * Nodes are numbered from 0 to nodeCount - 1 and the dependencies of the node i are stored in
+ * dependencies[dependencyOffsets[i]..dependencyOffsets[i + 1]) (compressed sparse row layout).
+ * Runs without recursion, so it can sort graphs of any depth.
+ */
+public class IndexedTopologicalSorter {
+    private final int nodeCount;
+    private final int[] dependencyOffsets;
+    private final int[] dependencies;
+
+    private List<int[]> cycles;
+    // Reverse adjacency in the same layout: the nodes that depend on the node i, built on first use.
+    private int[] dependentOffsets;
+    private int[] dependents;
+
+    /**
+     * Constructs a new sorter over the given graph.
+     * @param nodeCount the number of nodes in the graph
+     * @param dependencyOffsets the offsets of every node's dependencies, of length nodeCount + 1
+     * @param dependencies the ids of the dependencies of all nodes, one node after another
+     */
+    public IndexedTopologicalSorter(final int nodeCount,
+                                    final int @NotNull [] dependencyOffsets,
+                                    final int @NotNull [] dependencies) {
+        if (dependencyOffsets.length != nodeCount + 1) {
+            throw new IllegalArgumentException("dependencyOffsets must have nodeCount + 1 elements");
+        }
+
+        this.nodeCount = nodeCount;
+        this.dependencyOffsets = dependencyOffsets;
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * Sorts the nodes in topological order (every node comes after all of its dependencies).
+     * Of the nodes whose dependencies have all been emitted the one with the smallest id always comes next,
+     * so the order only depends on the graph and not on the order its edges were found in.
+     * Returns null if the nodes contain a circular dependency.
+     * @return The sorted node ids or null if there is a circular dependency.
+     */
+    public int @Nullable [] sort() {
+        cycles = null;
+        buildDependents();
+
+        // The number of not yet emitted dependencies of every node.
+        final var pendingDependencies = new int[nodeCount];
+        for (int node = 0; node < nodeCount; ++node) {
+            pendingDependencies[node] = dependencyOffsets[node + 1] - dependencyOffsets[node];
+        }
+
+        // Binary min-heap of the nodes with no pending dependencies. Filled in ascending order, it is a heap already.
+        final var readyNodes = new int[nodeCount];
+        int readyCount = 0;
+        for (int node = 0; node < nodeCount; ++node) {
+            if (pendingDependencies[node] == 0) {
+                readyNodes[readyCount++] = node;
+            }
+        }
+
+        final var sortedNodes = new int[nodeCount];
+        int sortedCount = 0;
+        while (readyCount > 0) {
+            final int node = readyNodes[0];
+            sortedNodes[sortedCount++] = node;
+            final int lastNode = readyNodes[--readyCount];
+            siftDown(readyNodes, readyCount, lastNode);
+
+            for (int i = dependentOffsets[node]; i < dependentOffsets[node + 1]; ++i) {
+                if (--pendingDependencies[dependents[i]] == 0) {
+                    siftUp(readyNodes, readyCount++, dependents[i]);
+                }
+            }
+        }
+
+        if (sortedCount == nodeCount) {
+            return sortedNodes;
+        }
+
+        cycles = findCycles(pendingDependencies);
+        return null;
+    }
+
+    /**
+     * Puts the node into the heap of the given size in place of its root.
+     */
+    private static void siftDown(final int @NotNull [] heap, final int size, final int node) {
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                ++child;
+            }
+            if (node <= heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = node;
+    }
+
+    /**
+     * Adds the node to the heap at the given free index, its size before the addition.
+     */
+    private static void siftUp(final int @NotNull [] heap, int index, final int node) {
+        while (index > 0) {
+            final int parent = (index - 1) / 2;
+            if (heap[parent] <= node) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = node;
+    }
+
+    /**
+     * Groups the nodes into dependency levels: the first level holds the nodes without dependencies
+     * and every other node is on the level right after the deepest of its dependencies.
+     * Nodes on the same level don't depend on each other, so each level can be processed in parallel
+     * once the previous levels are done.
+     * Returns null if the nodes contain a circular dependency.
+     * @return The node ids of every level or null if there is a circular dependency.
+     */
+    public int @Nullable [] @NotNull [] sortLevels() {
+        final var sortedNodes = sort();
+        if (sortedNodes == null) {
+            return null;
+        }
+
+        // Dependencies come first in the sorted order, so their levels are known by the time they are needed.
+        final var levels = new int[nodeCount];
+        int levelCount = 0;
+        for (final int node : sortedNodes) {
+            int level = 0;
+            for (int i = dependencyOffsets[node]; i < dependencyOffsets[node + 1]; ++i) {
+                level = Math.max(level, levels[dependencies[i]] + 1);
+            }
+            levels[node] = level;
+            levelCount = Math.max(levelCount, level + 1);
+        }
+
+        final var levelSizes = new int[levelCount];
+        for (final int level : levels) {
+            levelSizes[level]++;
+        }
+
+        final var result = new int[levelCount][];
+        for (int level = 0; level < levelCount; ++level) {
+            result[level] = new int[levelSizes[level]];
+        }
+
+        Arrays.fill(levelSizes, 0);
+        for (final int node : sortedNodes) {
+            result[levels[node]][levelSizes[levels[node]]++] = node;
+        }
+        return result;
+    }
+
+    /**
+     * Runs the action for every node on the executor, starting each node as soon as
+     * the actions of all of its dependencies have completed.
+     * Independent nodes run concurrently, unlike with levels no node waits for unrelated ones.
+     * If an action throws, no more actions are started and the returned future completes with its exception.
+     * If the nodes contain a circular dependency, nothing is run, the future fails with
+     * an {@link IllegalStateException} and the cycles are available from {@link #getCycles()}.
+     * @param action The action to run for every node id.
+     * @param executor The executor to run the actions on.
+     * @return The future that completes once the actions of all nodes have completed.
+     */
+    public @NotNull CompletableFuture<Void> run(final @NotNull IntConsumer action, final @NotNull Executor executor) {
+        if (sort() == null) {
+            return CompletableFuture.failedFuture(
+                    new IllegalStateException("The graph contains a circular dependency"));
+        }
+
+        final var wavefront = new Wavefront(action, executor);
+        wavefront.start();
+        return wavefront.result;
+    }
+
+    /**
+     * Returns some cycle (a circular dependency) in the graph if there are any or null.
+     * Every node in the cycle requires the next one and the last node requires the first one.
+     *
+     * @return A cycle or null.
+     */
+    public int @Nullable [] getCycle() {
+        return cycles == null ? null : cycles.get(0);
+    }
+
+    /**
+     * Returns a cycle for every strongly connected component of the graph that has one, or null if there are none.
+     * Nodes of different cycles never depend on each other both ways, so every cycle has to be broken on its own.
+     * Every node in a cycle requires the next one and the last node requires the first one.
+     *
+     * @return The cycles or null.
+     */
+    public @Nullable List<int @NotNull []> getCycles() {
+        return cycles;
+    }
+
+    private void buildDependents() {
+        if (dependents != null) {
+            return;
+        }
+
+        final var offsets = new int[nodeCount + 1];
+        for (int node = 0; node < nodeCount; ++node) {
+            for (int i = dependencyOffsets[node]; i < dependencyOffsets[node + 1]; ++i) {
+                offsets[dependencies[i] + 1]++;
+            }
+        }
+        for (int node = 0; node < nodeCount; ++node) {
+            offsets[node + 1] += offsets[node];
+        }
+
+        final var result = new int[offsets[nodeCount]];
+        final var fillPositions = Arrays.copyOf(offsets, nodeCount);
+        for (int node = 0; node < nodeCount; ++node) {
+            for (int i = dependencyOffsets[node]; i < dependencyOffsets[node + 1]; ++i) {
+                result[fillPositions[dependencies[i]]++] = node;
+            }
+        }
+
+        dependentOffsets = offsets;
+        dependents = result;
+    }
+
+    /**
+     * Finds a cycle in every strongly connected component among the nodes that were left unsorted.
+     * Uses Tarjan's algorithm, which runs in linear time, with an explicit stack instead of recursion.
+     * Every unsorted node has at least one unsorted dependency, so every component of more than one node
+     * or with a node requiring itself contains a cycle.
+     */
+    private @NotNull List<int[]> findCycles(final int @NotNull [] pendingDependencies) {
+        final var indices = new int[nodeCount];
+        Arrays.fill(indices, -1);
+        final var lowLinks = new int[nodeCount];
+        final var components = new int[nodeCount];
+        Arrays.fill(components, -1);
+        // The next dependency to look at for every node on the call stack.
+        final var edgePositions = new int[nodeCount];
+
+        final var componentStack = new int[nodeCount];
+        int componentStackSize = 0;
+        final var callStack = new int[nodeCount];
+        int callStackSize = 0;
+        // Shared by the searches for a cycle inside every component, see findCycle.
+        final var pathPositions = new int[nodeCount];
+        Arrays.fill(pathPositions, -1);
+        final var path = new int[nodeCount];
+        int nextIndex = 0;
+        int componentCount = 0;
+
+        final var result = new ArrayList<int[]>();
+
+        for (int start = 0; start < nodeCount; ++start) {
+            if (pendingDependencies[start] == 0 || indices[start] != -1) {
+                continue;
+            }
+
+            indices[start] = lowLinks[start] = nextIndex++;
+            edgePositions[start] = dependencyOffsets[start];
+            componentStack[componentStackSize++] = start;
+            callStack[callStackSize++] = start;
+
+            while (callStackSize > 0) {
+                final int node = callStack[callStackSize - 1];
+
+                if (edgePositions[node] < dependencyOffsets[node + 1]) {
+                    final int dependency = dependencies[edgePositions[node]++];
+                    if (pendingDependencies[dependency] == 0) {
+                        continue;
+                    }
+
+                    if (indices[dependency] == -1) {
+                        indices[dependency] = lowLinks[dependency] = nextIndex++;
+                        edgePositions[dependency] = dependencyOffsets[dependency];
+                        componentStack[componentStackSize++] = dependency;
+                        callStack[callStackSize++] = dependency;
+                    } else if (components[dependency] == -1) {
+                        // The dependency is still on the component stack.
+                        lowLinks[node] = Math.min(lowLinks[node], indices[dependency]);
+                    }
+                    continue;
+                }
+
+                callStackSize--;
+                if (callStackSize > 0) {
+                    final int parent = callStack[callStackSize - 1];
+                    lowLinks[parent] = Math.min(lowLinks[parent], lowLinks[node]);
+                }
+
+                if (lowLinks[node] == indices[node]) {
+                    int size = 0;
+                    int member;
+                    do {
+                        member = componentStack[--componentStackSize];
+                        components[member] = componentCount;
+                        size++;
+                    } while (member != node);
+
+                    if (size > 1 || requiresItself(node)) {
+                        result.add(findCycle(node, components, pathPositions, path));
+                    }
+                    componentCount++;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private boolean requiresItself(final int node) {
+        for (int i = dependencyOffsets[node]; i < dependencyOffsets[node + 1]; ++i) {
+            if (dependencies[i] == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds a cycle inside the strongly connected component of the given node.
+     * Every node of the component has a dependency in the same component, so following
+     * such dependencies from the node must eventually close a cycle.
+     * The position of every node on the path is -1 before the call and is reset to it afterwards,
+     * so the arrays are reused for all components.
+     */
+    private int @NotNull [] findCycle(final int start,
+                                      final int @NotNull [] components,
+                                      final int @NotNull [] pathPositions,
+                                      final int @NotNull [] path) {
+        int pathLength = 0;
+
+        int node = start;
+        while (pathPositions[node] == -1) {
+            pathPositions[node] = pathLength;
+            path[pathLength++] = node;
+
+            int next = -1;
+            for (int i = dependencyOffsets[node]; i < dependencyOffsets[node + 1]; ++i) {
+                if (components[dependencies[i]] == components[node]) {
+                    next = dependencies[i];
+                    break;
+                }
+            }
+
+            assert next != -1;
+            node = next;
+        }
+
+        final var cycle = Arrays.copyOfRange(path, pathPositions[node], pathLength);
+        for (int i = 0; i < pathLength; ++i) {
+            pathPositions[path[i]] = -1;
+        }
+        return cycle;
+    }
+
+    /**
+     * The state of a single {@link #run(IntConsumer, Executor)}.
+     * Every node's counter of unfinished dependencies is decremented by the actions of its dependencies,
+     * the one that brings it to zero submits the node.
+     */
+    private class Wavefront {
+        private final IntConsumer action;
+        private final Executor executor;
+        private final AtomicIntegerArray pendingDependencies = new AtomicIntegerArray(nodeCount);
+        private final AtomicInteger remainingNodes = new AtomicInteger(nodeCount);
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        Wavefront(final @NotNull IntConsumer action, final @NotNull Executor executor) {
+            this.action = action;
+            this.executor = executor;
+        }
+
+        void start() {
+            if (nodeCount == 0) {
+                result.complete(null);
+                return;
+            }
+
+            for (int node = 0; node < nodeCount; ++node) {
+                pendingDependencies.set(node, dependencyOffsets[node + 1] - dependencyOffsets[node]);
+            }
+            for (int node = 0; node < nodeCount; ++node) {
+                if (dependencyOffsets[node + 1] == dependencyOffsets[node]) {
+                    submit(node);
+                }
+            }
+        }
+
+        private void submit(final int node) {
+            try {
+                executor.execute(() -> runNode(node));
+            } catch (final RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        private void runNode(final int node) {
+            if (result.isDone()) {
+                return;
+            }
+
+            try {
+                action.accept(node);
+            } catch (final Throwable e) {
+                result.completeExceptionally(e);
+                return;
+            }
+
+            for (int i = dependentOffsets[node]; i < dependentOffsets[node + 1]; ++i) {
+                if (pendingDependencies.decrementAndGet(dependents[i]) == 0) {
+                    submit(dependents[i]);
+                }
+            }
+
+            if (remainingNodes.decrementAndGet() == 0) {
+                result.complete(null);
+            }
+        }
+    }
+}
@@ -11,7 +11,8 @@ public enum LogLevel {
     private final String prefix;
 
     LogLevel(final @NotNull String name, final @NotNull String color) {
-        this.prefix = String.format("%s[%s]%s ", color, name, ConsoleColors.RESET);
+        // Plain concatenation, so that loading the levels does not pull the formatter machinery into startup.
+        this.prefix = color + "[" + name + "]" + ConsoleColors.RESET + " ";
     }
 
     /**
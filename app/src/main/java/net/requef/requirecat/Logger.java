@@ -2,8 +2,56 @@ package net.requef.requirecat;
 
 import org.jetbrains.annotations.NotNull;
 
-public class Logger {
-    private LogLevel logLevel = LogLevel.INFO;
+import java.io.PrintStream;
+import java.util.Formatter;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Asynchronous logger.
+ * Messages are put into a bounded ring buffer and printed to the stdout in batches by a background thread,
+ * so logging threads never wait for the console (unless the buffer is full).
+ * Formatting is deferred until the message is printed, hence the arguments should not be modified after logging.
+ * All messages are printed before the program exits or the logger is closed.
+ */
+public class Logger implements AutoCloseable {
+    private static final int CAPACITY = 1024;
+
+    private final PrintStream output;
+    private volatile LogLevel logLevel = LogLevel.INFO;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition printed = lock.newCondition();
+
+    // Allocated together with the flusher, a run that logs nothing does not pay for the buffer.
+    private LogLevel[] levels;
+    private String[] messages;
+    private Object[][] arguments;
+    // The sequence numbers of the next message to print, the next free slot and the last printed message.
+    private long head = 0;
+    private long tail = 0;
+    private long printedCount = 0;
+
+    private Thread flusher;
+    private Thread shutdownHook;
+    private boolean isClosed = false;
+
+    /**
+     * Constructs a new logger that prints to the stdout.
+     */
+    public Logger() {
+        this(System.out);
+    }
+
+    /**
+     * Constructs a new logger.
+     * @param output The stream to print messages to.
+     */
+    public Logger(final @NotNull PrintStream output) {
+        this.output = output;
+    }
 
     /**
      * Sets the log level.
@@ -15,12 +63,157 @@ public class Logger {
         this.logLevel = logLevel;
     }
 
+    /**
+     * Waits until all messages logged so far are printed.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            final long target = tail;
+            while (printedCount < target) {
+                printed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Prints all messages logged so far and stops the background thread.
+     * Messages logged afterwards are dropped.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (final IllegalStateException ignored) {
+                // The JVM is already shutting down, the hook has nothing left to print.
+            }
+        }
+    }
+
     private boolean shouldLog(final @NotNull LogLevel logLevel) {
         return logLevel.ordinal() >= this.logLevel.ordinal();
     }
 
     private void printLog(final @NotNull LogLevel level, final @NotNull String message, final @NotNull Object... args) {
-        System.out.printf("%s%s%n", level.getPrefix(), String.format(message, args));
+        lock.lock();
+        try {
+            if (isClosed) {
+                return;
+            }
+            while (tail - head == CAPACITY) {
+                notFull.awaitUninterruptibly();
+            }
+
+            if (flusher == null) {
+                startFlusher();
+            }
+
+            final int slot = (int) (tail % CAPACITY);
+            levels[slot] = level;
+            messages[slot] = message;
+            arguments[slot] = args;
+            tail++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Allocates the buffer and starts the background thread, which are only needed once something is logged.
+     * Must be called with the lock held.
+     */
+    private void startFlusher() {
+        levels = new LogLevel[CAPACITY];
+        messages = new String[CAPACITY];
+        arguments = new Object[CAPACITY][];
+
+        flusher = new Thread(this::runFlusher, "RequireCat-Logger");
+        flusher.setDaemon(true);
+        flusher.start();
+
+        shutdownHook = new Thread(this::flush, "RequireCat-Logger-Shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    private void runFlusher() {
+        final var batch = new StringBuilder();
+        final var formatter = new Formatter(batch);
+        final var lineSeparator = System.lineSeparator();
+
+        while (true) {
+            final long batchStart;
+            final long batchEnd;
+
+            lock.lock();
+            try {
+                while (head == tail) {
+                    if (isClosed) {
+                        return;
+                    }
+                    notEmpty.awaitUninterruptibly();
+                }
+                batchStart = head;
+                batchEnd = tail;
+            } finally {
+                lock.unlock();
+            }
+
+            // The slots of the batch are not reused until the head moves past them, so they can be read unlocked.
+            batch.setLength(0);
+            for (long i = batchStart; i < batchEnd; ++i) {
+                final int slot = (int) (i % CAPACITY);
+                batch.append(levels[slot].getPrefix());
+                final int messageStart = batch.length();
+                try {
+                    formatter.format(messages[slot], arguments[slot]);
+                } catch (final RuntimeException e) {
+                    // A malformed message or an argument that fails to format must not stop the thread,
+                    // since everyone waiting for the messages to be printed would wait forever.
+                    batch.setLength(messageStart);
+                    batch.append(messages[slot]);
+                }
+                batch.append(lineSeparator);
+            }
+
+            output.print(batch);
+            output.flush();
+
+            lock.lock();
+            try {
+                for (long i = batchStart; i < batchEnd; ++i) {
+                    final int slot = (int) (i % CAPACITY);
+                    levels[slot] = null;
+                    messages[slot] = null;
+                    arguments[slot] = null;
+                }
+                head = batchEnd;
+                printedCount = batchEnd;
+                notFull.signalAll();
+                printed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
     }
 
     /**
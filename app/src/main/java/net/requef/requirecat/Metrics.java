@@ -0,0 +1,182 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects timings and counters of a single run and reports them as JSON.
+ * Every phase is also reported as a {@link PhaseEvent} to the Flight Recorder.
+ * Safe to use from multiple threads.
+ */
+public class Metrics {
+    private final long startTime = System.nanoTime();
+    private final List<Phase> phases = new ArrayList<>();
+
+    private final LongAdder parsedFiles = new LongAdder();
+    private final LongAdder parseTime = new LongAdder();
+    private final AtomicLong fileCount = new AtomicLong();
+    private final AtomicLong edgeCount = new AtomicLong();
+    private final AtomicLong byteCount = new AtomicLong();
+
+    /**
+     * Starts measuring a phase, which lasts until the returned phase is closed.
+     * @param name The name of the phase.
+     * @return The started phase.
+     */
+    public @NotNull Phase startPhase(final @NotNull String name) {
+        final var phase = new Phase(name);
+        synchronized (phases) {
+            phases.add(phase);
+        }
+        return phase;
+    }
+
+    /**
+     * Records the time it took to parse a single file.
+     * @param file The parsed file.
+     * @param startTime The value of {@link System#nanoTime()} before parsing began.
+     * @param event The event that was begun before parsing.
+     */
+    public void recordParse(final @NotNull Path file, final long startTime, final @NotNull SlowFileEvent event) {
+        parseTime.add(System.nanoTime() - startTime);
+        parsedFiles.increment();
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = file.toString();
+            event.operation = "parse";
+            event.commit();
+        }
+    }
+
+    /**
+     * Sets the number of analyzed files.
+     * @param count The number of files.
+     */
+    public void setFileCount(final long count) {
+        fileCount.set(count);
+    }
+
+    /**
+     * Sets the number of resolved dependencies.
+     * @param count The number of edges in the dependency graph.
+     */
+    public void setEdgeCount(final long count) {
+        edgeCount.set(count);
+    }
+
+    /**
+     * Sets the number of bytes written to the output.
+     * @param count The number of bytes.
+     */
+    public void setByteCount(final long count) {
+        byteCount.set(count);
+    }
+
+    /**
+     * Writes the report to the given file.
+     * @param file The file to write the report to.
+     * @param isSuccess Whether the run succeeded.
+     * @throws IOException if the file can't be written.
+     */
+    public void writeJson(final @NotNull File file, final boolean isSuccess) throws IOException {
+        Files.writeString(file.toPath(), toJson(isSuccess), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Formats the report as a JSON object.
+     * Every phase has its wall time and throughput; parsing runs inside the walk on many threads,
+     * so its time is the sum of the time spent on every file.
+     * @param isSuccess Whether the run succeeded.
+     * @return The report.
+     */
+    public @NotNull String toJson(final boolean isSuccess) {
+        final var json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"success\": ").append(isSuccess).append(",\n");
+        json.append("  \"totalMillis\": ").append(millis(System.nanoTime() - startTime)).append(",\n");
+        json.append("  \"files\": ").append(fileCount.get()).append(",\n");
+        json.append("  \"edges\": ").append(edgeCount.get()).append(",\n");
+        json.append("  \"bytes\": ").append(byteCount.get()).append(",\n");
+        json.append("  \"parse\": {\"files\": ").append(parsedFiles.sum())
+                .append(", \"cumulativeMillis\": ").append(millis(parseTime.sum())).append("},\n");
+        json.append("  \"phases\": [");
+
+        synchronized (phases) {
+            for (int i = 0; i < phases.size(); ++i) {
+                final var phase = phases.get(i);
+                final long items = phase.getItems();
+                final long duration = phase.getDuration();
+
+                json.append(i == 0 ? "\n" : ",\n");
+                json.append("    {\"name\": \"").append(phase.name).append('"');
+                json.append(", \"millis\": ").append(millis(duration));
+                json.append(", \"items\": ").append(items);
+                json.append(", \"itemsPerSecond\": ")
+                        .append(duration == 0 ? "0" : format(items * 1e9 / duration));
+                json.append('}');
+            }
+        }
+
+        json.append("\n  ]\n}\n");
+        return json.toString();
+    }
+
+    private static @NotNull String millis(final long nanos) {
+        return format(nanos / 1e6);
+    }
+
+    private static @NotNull String format(final double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    /**
+     * A single measured phase of the pipeline.
+     */
+    public class Phase implements AutoCloseable {
+        private final String name;
+        private final PhaseEvent event = new PhaseEvent();
+        private final long phaseStartTime = System.nanoTime();
+        private volatile long duration = -1;
+        private volatile long items;
+
+        private Phase(final @NotNull String name) {
+            this.name = name;
+            event.begin();
+        }
+
+        /**
+         * Sets the number of files, edges or bytes processed by the phase.
+         * @param items The number of processed items.
+         */
+        public void setItems(final long items) {
+            this.items = items;
+        }
+
+        long getItems() {
+            return items;
+        }
+
+        long getDuration() {
+            return duration == -1 ? System.nanoTime() - phaseStartTime : duration;
+        }
+
+        @Override
+        public void close() {
+            duration = System.nanoTime() - phaseStartTime;
+            event.phase = name;
+            event.items = items;
+            event.commit();
+        }
+    }
+}
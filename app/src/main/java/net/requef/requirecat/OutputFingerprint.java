@@ -0,0 +1,153 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sidecar fingerprint of the output file: a hash of the settings the output was written with and of the path,
+ * size and modification time (and optionally the content hash) of every source file in the order of the output.
+ * If the next run computes the same fingerprint and the output was not changed since, the output is up to date
+ * and is not written again, so its modification time stays and tools watching it are not triggered.
+ */
+public class OutputFingerprint {
+    private static final String EXTENSION = ".fingerprint";
+    private static final int MAGIC = 0x52434650; // "RCFP"
+    private static final int VERSION = 1;
+
+    private final byte[] hash;
+
+    private OutputFingerprint(final byte @NotNull [] hash) {
+        this.hash = hash;
+    }
+
+    /**
+     * Returns the fingerprint file of the given output file.
+     * @param outputFile The output file.
+     * @return The fingerprint file next to the output file.
+     */
+    public static @NotNull File fingerprintFileOf(final @NotNull File outputFile) {
+        return new File(outputFile.getPath() + EXTENSION);
+    }
+
+    /**
+     * Computes the fingerprint of the output that the given files make up.
+     * @param sortedFiles The files in the order they are written to the output.
+     * @param settings The settings that change the bytes of the output, e.g. its compression.
+     * @param useContentHash Whether to hash the contents of the files too, so a file that was changed
+     *                       without a change of its size or modification time is noticed.
+     *                       The contents are hashed in parallel.
+     * @return The fingerprint.
+     * @throws IOException if a file can't be read.
+     */
+    public static @NotNull OutputFingerprint of(final @NotNull List<Path> sortedFiles,
+                                                final @NotNull String settings,
+                                                final boolean useContentHash) throws IOException {
+        final var contentHashes = useContentHash ? hashContents(sortedFiles) : null;
+
+        final var digest = ContentHash.newDigest();
+        final var bytes = new ByteArrayOutputStream();
+        final var data = new DataOutputStream(bytes);
+        data.writeUTF(settings);
+        data.writeInt(sortedFiles.size());
+        for (int i = 0; i < sortedFiles.size(); ++i) {
+            final var file = sortedFiles.get(i);
+            final var attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            data.writeUTF(file.toUri().toString());
+            data.writeLong(attributes.size());
+            data.writeLong(attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+            if (contentHashes != null) {
+                data.write(contentHashes[i]);
+            }
+
+            if (bytes.size() >= 8192) {
+                digest.update(bytes.toByteArray());
+                bytes.reset();
+            }
+        }
+        digest.update(bytes.toByteArray());
+        return new OutputFingerprint(digest.digest());
+    }
+
+    private static byte @NotNull [] @NotNull [] hashContents(final @NotNull List<Path> files) throws IOException {
+        try {
+            return files.parallelStream()
+                    .map(file -> {
+                        try {
+                            return ContentHash.of(file);
+                        } catch (final IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .toArray(byte[][]::new);
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Checks whether the given output file was written with this fingerprint and was not changed since.
+     * @param outputFile The output file.
+     * @return True if the output is up to date.
+     */
+    public boolean matches(final @NotNull File outputFile) {
+        final var fingerprintFile = fingerprintFileOf(outputFile);
+        if (!fingerprintFile.isFile() || !outputFile.isFile()) {
+            return false;
+        }
+
+        try (final var input = new DataInputStream(new BufferedInputStream(new FileInputStream(fingerprintFile)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return false;
+            }
+
+            final var outputAttributes = Files.readAttributes(outputFile.toPath(), BasicFileAttributes.class);
+            if (input.readLong() != outputAttributes.size()
+                    || input.readLong() != outputAttributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+
+            final int savedHashLength = input.readInt();
+            if (savedHashLength != hash.length) {
+                return false;
+            }
+
+            final var savedHash = new byte[savedHashLength];
+            input.readFully(savedHash);
+            return Arrays.equals(savedHash, hash);
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Saves the fingerprint next to the given output file, which should be fully written by now.
+     * @param outputFile The output file.
+     * @throws IOException if the fingerprint can't be written.
+     */
+    public void save(final @NotNull File outputFile) throws IOException {
+        final var fingerprintPath = fingerprintFileOf(outputFile).toPath().toAbsolutePath();
+        final var temporaryPath = fingerprintPath.resolveSibling(fingerprintPath.getFileName() + ".tmp");
+        final var outputAttributes = Files.readAttributes(outputFile.toPath(), BasicFileAttributes.class);
+
+        try (final var output = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temporaryPath)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(outputAttributes.size());
+            output.writeLong(outputAttributes.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+            output.writeInt(hash.length);
+            output.write(hash);
+        }
+
+        Files.move(temporaryPath, fingerprintPath, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,204 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A channel that gzips everything written to it on several threads, the way pigz does.
+ * The data is cut into fixed-size blocks, every block is compressed on its own into a complete gzip member,
+ * and the members are written to the output in order. Concatenated members form a standard gzip stream,
+ * which gunzip and {@link java.util.zip.GZIPInputStream} read as a single file.
+ * Blocks are compressed while the next ones are still being written, so compression overlaps with reading inputs.
+ * Not thread-safe: only one thread should write to the channel.
+ */
+public class ParallelGzipChannel implements WritableByteChannel {
+    private static final int BLOCK_SIZE = 1024 * 1024;
+    private static final int COMPRESSOR_COUNT = Runtime.getRuntime().availableProcessors();
+    private static final int MAX_PENDING_BLOCKS = COMPRESSOR_COUNT * 2;
+
+    // Magic, deflate method, no flags, no modification time, no extra flags, unknown OS.
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int TRAILER_SIZE = 8;
+
+    private static final ThreadLocal<Deflater> deflaters =
+            ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
+    private final WritableByteChannel output;
+    private final ExecutorService compressors;
+    private final ArrayDeque<PendingBlock> pendingBlocks = new ArrayDeque<>();
+    private final ArrayDeque<ByteBuffer> freeBlocks = new ArrayDeque<>();
+
+    private ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+    private boolean hasMembers = false;
+    private boolean isOpen = true;
+
+    /**
+     * Constructs a new channel.
+     * @param output The channel to write the compressed stream to, it is closed when this channel is closed.
+     */
+    public ParallelGzipChannel(final @NotNull WritableByteChannel output) {
+        this.output = output;
+        this.compressors = Executors.newFixedThreadPool(COMPRESSOR_COUNT, runnable -> {
+            final var thread = new Thread(runnable, "RequireCat-Compressor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public int write(final @NotNull ByteBuffer source) throws IOException {
+        if (!isOpen) {
+            throw new ClosedChannelException();
+        }
+
+        final int written = source.remaining();
+        while (source.hasRemaining()) {
+            final int length = Math.min(block.remaining(), source.remaining());
+            block.put(block.position(), source, source.position(), length);
+            block.position(block.position() + length);
+            source.position(source.position() + length);
+
+            if (!block.hasRemaining()) {
+                submitBlock();
+            }
+        }
+        return written;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return isOpen;
+    }
+
+    /**
+     * Compresses the rest of the data and writes all members, leaving the output channel open.
+     * The stream always has at least one member, so empty output is still a valid gzip file.
+     * Nothing can be written to this channel afterwards.
+     * @throws IOException if the output can't be written.
+     */
+    public void finish() throws IOException {
+        if (!isOpen) {
+            return;
+        }
+        isOpen = false;
+
+        try {
+            if (block.position() > 0 || !hasMembers) {
+                submitBlock();
+            }
+            while (!pendingBlocks.isEmpty()) {
+                writeNextMember();
+            }
+        } finally {
+            compressors.shutdownNow();
+        }
+    }
+
+    /**
+     * Finishes the stream, see {@link #finish()}, and closes the output channel.
+     * @throws IOException if the output can't be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try (output) {
+            finish();
+        }
+    }
+
+    /**
+     * Hands the current block over to a compressor, waiting for the oldest blocks
+     * if too many are still pending, so memory use stays bounded.
+     */
+    private void submitBlock() throws IOException {
+        final var data = block.flip();
+        pendingBlocks.add(new PendingBlock(data, compressors.submit(() -> compress(data))));
+        hasMembers = true;
+
+        while (pendingBlocks.size() > MAX_PENDING_BLOCKS) {
+            writeNextMember();
+        }
+
+        final var freeBlock = freeBlocks.poll();
+        block = freeBlock != null ? freeBlock.clear() : ByteBuffer.allocate(BLOCK_SIZE);
+    }
+
+    private void writeNextMember() throws IOException {
+        final var pendingBlock = pendingBlocks.poll();
+        assert pendingBlock != null;
+
+        final ByteBuffer member;
+        try {
+            member = pendingBlock.member.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing", e);
+        } catch (final ExecutionException e) {
+            throw new IOException("Failed to compress the output", e.getCause());
+        }
+
+        while (member.hasRemaining()) {
+            output.write(member);
+        }
+        freeBlocks.add(pendingBlock.data);
+    }
+
+    /**
+     * Compresses the block into a complete gzip member: header, raw deflate data and trailer.
+     */
+    private static @NotNull ByteBuffer compress(final @NotNull ByteBuffer data) {
+        final var crc = new CRC32();
+        crc.update(data.duplicate());
+
+        final var deflater = deflaters.get();
+        deflater.reset();
+        deflater.setInput(data.duplicate());
+        deflater.finish();
+
+        // Incompressible data grows a little, the buffer is enlarged in the rare case it is not enough.
+        var member = new byte[HEADER.length + data.remaining() + data.remaining() / 1000 + 64 + TRAILER_SIZE];
+        System.arraycopy(HEADER, 0, member, 0, HEADER.length);
+        int length = HEADER.length;
+        while (!deflater.finished()) {
+            if (length == member.length - TRAILER_SIZE) {
+                member = Arrays.copyOf(member, member.length * 2);
+            }
+            length += deflater.deflate(member, length, member.length - TRAILER_SIZE - length);
+        }
+
+        writeIntLittleEndian(member, length, (int) crc.getValue());
+        writeIntLittleEndian(member, length + 4, data.remaining());
+        return ByteBuffer.wrap(member, 0, length + TRAILER_SIZE);
+    }
+
+    private static void writeIntLittleEndian(final byte @NotNull [] bytes, final int offset, final int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >>> 8);
+        bytes[offset + 2] = (byte) (value >>> 16);
+        bytes[offset + 3] = (byte) (value >>> 24);
+    }
+
+    /**
+     * A block that is being compressed.
+     */
+    private static class PendingBlock {
+        private final ByteBuffer data;
+        private final Future<ByteBuffer> member;
+
+        PendingBlock(final @NotNull ByteBuffer data, final @NotNull Future<ByteBuffer> member) {
+            this.data = data;
+            this.member = member;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Interns path strings into dense int ids, numbered from 0 in the order the paths were added.
+ * Lookups go through an open-addressing table of ids, so no entry objects are allocated per path
+ * and the cached hash of the string is the only hash ever computed.
+ * Not thread-safe.
+ */
+public class PathTable {
+    private static final int EMPTY = -1;
+
+    private String[] paths;
+    private int[] slots;
+    private int size = 0;
+
+    /**
+     * Constructs a new table.
+     * @param expectedSize The expected number of paths.
+     */
+    public PathTable(final int expectedSize) {
+        paths = new String[Math.max(16, expectedSize)];
+        slots = new int[Integer.highestOneBit(Math.max(16, expectedSize) * 2 - 1) << 1];
+        Arrays.fill(slots, EMPTY);
+    }
+
+    /**
+     * Returns the id of the given path, adding it to the table if it is not there yet.
+     * @param path The path.
+     * @return The id of the path.
+     */
+    public int intern(final @NotNull String path) {
+        int slot = slotOf(path);
+        while (slots[slot] != EMPTY) {
+            if (paths[slots[slot]].equals(path)) {
+                return slots[slot];
+            }
+            slot = (slot + 1) & (slots.length - 1);
+        }
+
+        if (size == paths.length) {
+            paths = Arrays.copyOf(paths, size * 2);
+        }
+        paths[size] = path;
+        slots[slot] = size;
+
+        // Keep the table at most half full, so probe sequences stay short.
+        if (++size * 2 > slots.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    /**
+     * Returns the id of the given path.
+     * @param path The path.
+     * @return The id of the path or -1 if it is not in the table.
+     */
+    public int find(final @NotNull String path) {
+        int slot = slotOf(path);
+        while (slots[slot] != EMPTY) {
+            if (paths[slots[slot]].equals(path)) {
+                return slots[slot];
+            }
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the path with the given id.
+     * @param id The id of the path.
+     * @return The path.
+     */
+    public @NotNull String get(final int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException(id);
+        }
+        return paths[id];
+    }
+
+    /**
+     * Returns the number of paths in the table.
+     * @return The number of paths.
+     */
+    public int size() {
+        return size;
+    }
+
+    private int slotOf(final @NotNull String path) {
+        // Spread the bits of the string hash, the low ones alone are not random enough for paths.
+        final int hash = path.hashCode() * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (slots.length - 1);
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        Arrays.fill(slots, EMPTY);
+        for (int id = 0; id < size; ++id) {
+            int slot = slotOf(paths[id]);
+            while (slots[slot] != EMPTY) {
+                slot = (slot + 1) & (slots.length - 1);
+            }
+            slots[slot] = id;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package net.requef.requirecat;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event that spans a single stage of the pipeline (walk, resolve, sort, write).
+ */
+@Name("net.requef.requirecat.Phase")
+@Label("RequireCat Phase")
+@Category("RequireCat")
+@Description("A stage of the RequireCat pipeline")
+public class PhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Items")
+    @Description("The number of files, edges or bytes processed by the phase")
+    long items;
+}
@@ -4,301 +4,894 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.ProviderNotFoundException;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 public class RequireCat {
-    private static final Logger logger = new Logger();
+    private final Logger logger;
+    private final PrintStream console;
+    private final @Nullable RequireCatDaemon daemon;
+
+    /**
+     * Constructs a new run of the program.
+     * @param logger The logger of the run.
+     * @param console The stream to print the usage message to.
+     * @param daemon The daemon the run is served by, which keeps the parsed files warm between runs, or null.
+     */
+    RequireCat(final @NotNull Logger logger,
+               final @NotNull PrintStream console,
+               final @Nullable RequireCatDaemon daemon) {
+        this.logger = logger;
+        this.console = console;
+        this.daemon = daemon;
+    }
 
     public static void main(String[] args) {
+        final var logger = new Logger();
+        final int exitCode;
+        if (args.length > 0 && args[0].startsWith("--daemon=")) {
+            exitCode = serve(logger, args);
+        } else if (args.length > 0 && args[0].startsWith("--connect=")) {
+            exitCode = connect(logger, args);
+        } else {
+            exitCode = new RequireCat(logger, System.out, null).run(null, args);
+        }
+
+        if (exitCode != 0) {
+            logger.flush();
+            System.exit(exitCode);
+        }
+    }
+
+    /**
+     * Runs the daemon until the process is stopped.
+     * @param logger The logger of the daemon.
+     * @param args The arguments, '--daemon=&lt;socket_file&gt;' only.
+     * @return The exit code.
+     */
+    private static int serve(final @NotNull Logger logger, final @NotNull String @NotNull [] args) {
+        final var socketPath = args[0].substring(9);
+        if (args.length != 1) {
+            return abort(logger, "--daemon takes no other arguments");
+        }
+        if (socketPath.isEmpty() || !isValidPath(socketPath)) {
+            return abort(logger, "'%s' is not a valid path", socketPath);
+        }
+
+        try {
+            new RequireCatDaemon(Path.of(socketPath), logger).serve();
+        } catch (final IOException e) {
+            return abort(logger, "Failed to run the daemon: %s", e.getMessage());
+        }
+        return 0;
+    }
+
+    /**
+     * Forwards the rest of the arguments to the daemon and prints its output.
+     * Builds in this process if no daemon is listening.
+     * @param logger The logger of the client.
+     * @param args The arguments, starting with '--connect=&lt;socket_file&gt;'.
+     * @return The exit code of the build.
+     */
+    private static int connect(final @NotNull Logger logger, final @NotNull String @NotNull [] args) {
+        final var socketPath = args[0].substring(10);
+        final var forwardedArgs = Arrays.copyOfRange(args, 1, args.length);
+        if (socketPath.isEmpty() || !isValidPath(socketPath)) {
+            return abort(logger, "'%s' is not a valid path", socketPath);
+        }
+
+        final Integer exitCode;
+        try {
+            exitCode = RequireCatClient.forward(Path.of(socketPath), forwardedArgs);
+        } catch (final IOException e) {
+            return abort(logger, "Failed to talk to the daemon: %s", e.getMessage());
+        }
+
+        if (exitCode == null) {
+            logger.warn("No daemon is listening on '%s', building in this process", socketPath);
+            return new RequireCat(logger, System.out, null).run(null, forwardedArgs);
+        }
+        return exitCode;
+    }
+
+    /**
+     * Parses the arguments and builds the output.
+     * @param workingDirectory The directory to resolve a relative root directory against,
+     *                         null for the working directory of this process.
+     * @param args The command line arguments.
+     * @return The exit code.
+     */
+    int run(final @Nullable File workingDirectory, final @NotNull String @NotNull [] args) {
         // Parsing arguments.
         if (args.length == 0) {
             printUsage();
-            exitWithError("At least one argument is required");
-            return;
+            return abort(logger, "At least one argument is required");
         }
 
         final var rootPath = args[0];
-        final var rootDirectory = new File(rootPath);
-        if (!rootDirectory.isDirectory()) {
-            exitWithError("'%s' is not a valid directory", rootPath);
-            return;
+        final var rootFile = resolveRoot(workingDirectory, rootPath);
+        final boolean isArchive = rootFile.isFile() && isArchiveName(rootFile.getName());
+        if (!rootFile.isDirectory() && !isArchive) {
+            return abort(logger, "'%s' is not a valid directory or archive", rootPath);
         }
+        // The paths of the options are relative to the root directory or, for an archive, to its directory.
+        final var baseDirectory = isArchive ? rootFile.getAbsoluteFile().getParentFile() : rootFile;
 
         boolean isQuietMode = false;
-        var outputFile = new File(rootDirectory, "out.txt");
+        boolean isWatchMode = false;
+        boolean isHeaderOnly = false;
+        boolean isIncremental = false;
+        boolean isCompressed = false;
+        boolean isSkipUnchanged = false;
+        boolean useFingerprintContentHash = false;
+        boolean useCacheContentHash = false;
+        boolean isValidateMode = false;
+        var outputFile = new File(baseDirectory, "out.txt");
+        boolean isOutputFileSet = false;
+        File targetsFile = null;
+        final var entryPaths = new ArrayList<String>();
+        final var ignorePatterns = new ArrayList<String>();
+        File cacheFile = null;
+        File metricsFile = null;
+        File reportFile = null;
+        long readAheadBytes = 0;
         for (int i = 1; i < args.length; ++i) {
             if ("-q".equals(args[i])) {
                 isQuietMode = true;
             } else if (args[i].startsWith("-o=")) {
                 final var outputFilePath = args[i].substring(3);
                 if (outputFilePath.isEmpty() || !isValidPath(outputFilePath)) {
-                    exitWithError("'%s' is not a valid path", outputFilePath);
-                    return;
+                    return abort(logger, "'%s' is not a valid path", outputFilePath);
+                }
+                outputFile = new File(baseDirectory, outputFilePath);
+                isOutputFileSet = true;
+            } else if (args[i].startsWith("--entry=")) {
+                final var entryFilePath = args[i].substring(8);
+                final var entryPath = DependencyGraph.normalizePath(entryFilePath);
+                if (entryFilePath.isEmpty() || entryPath == null) {
+                    return abort(logger, "'%s' is not a valid path", entryFilePath);
                 }
-                outputFile = new File(rootDirectory, outputFilePath);
+                entryPaths.add(entryPath);
+            } else if (args[i].startsWith("--exclude=") || args[i].startsWith("--include=")) {
+                final var pattern = args[i].substring(10);
+                if (pattern.isBlank()) {
+                    return abort(logger, "'%s' is not a valid pattern", pattern);
+                }
+                // Flags come after the ignore file, an include is a negated exclude.
+                ignorePatterns.add(args[i].startsWith("--include=") ? "!" + pattern : pattern);
+            } else if (args[i].startsWith("--targets=")) {
+                final var targetsFilePath = args[i].substring(10);
+                if (targetsFilePath.isEmpty() || !isValidPath(targetsFilePath)) {
+                    return abort(logger, "'%s' is not a valid path", targetsFilePath);
+                }
+                targetsFile = new File(baseDirectory, targetsFilePath);
+            } else if (args[i].startsWith("--cache=")) {
+                final var cacheFilePath = args[i].substring(8);
+                if (cacheFilePath.isEmpty() || !isValidPath(cacheFilePath)) {
+                    return abort(logger, "'%s' is not a valid path", cacheFilePath);
+                }
+                cacheFile = new File(baseDirectory, cacheFilePath);
+            } else if (args[i].startsWith("--metrics=")) {
+                final var metricsFilePath = args[i].substring(10);
+                if (metricsFilePath.isEmpty() || !isValidPath(metricsFilePath)) {
+                    return abort(logger, "'%s' is not a valid path", metricsFilePath);
+                }
+                metricsFile = new File(baseDirectory, metricsFilePath);
+            } else if (args[i].startsWith("--read-ahead=")) {
+                final var readAheadMegabytes = parseNonNegativeLong(args[i].substring(13));
+                if (readAheadMegabytes == null || readAheadMegabytes > Long.MAX_VALUE / (1024 * 1024)) {
+                    return abort(logger, "'%s' is not a valid read-ahead size", args[i].substring(13));
+                }
+                readAheadBytes = readAheadMegabytes * 1024 * 1024;
+            } else if ("--validate".equals(args[i])) {
+                isValidateMode = true;
+            } else if (args[i].startsWith("--validate=")) {
+                final var reportFilePath = args[i].substring(11);
+                if (reportFilePath.isEmpty() || !isValidPath(reportFilePath)) {
+                    return abort(logger, "'%s' is not a valid path", reportFilePath);
+                }
+                isValidateMode = true;
+                reportFile = new File(baseDirectory, reportFilePath);
+            } else if ("--cache-hash".equals(args[i])) {
+                useCacheContentHash = true;
+            } else if ("--watch".equals(args[i])) {
+                isWatchMode = true;
+            } else if ("--header-only".equals(args[i])) {
+                isHeaderOnly = true;
+            } else if ("--incremental".equals(args[i])) {
+                isIncremental = true;
+            } else if ("--gzip".equals(args[i])) {
+                isCompressed = true;
+            } else if ("--skip-unchanged".equals(args[i]) || "--skip-unchanged=hash".equals(args[i])) {
+                isSkipUnchanged = true;
+                useFingerprintContentHash = args[i].endsWith("=hash");
             } else {
                 printUsage();
-                exitWithError("Unrecognised argument: '%s'", args[i]);
-                return;
+                return abort(logger, "Unrecognised argument: '%s'", args[i]);
+            }
+        }
+
+        if (isIncremental && isCompressed) {
+            return abort(logger, "--incremental can't be combined with --gzip");
+        }
+        if (isIncremental && isSkipUnchanged) {
+            return abort(logger, "--incremental can't be combined with --skip-unchanged");
+        }
+        if (isWatchMode && daemon != null) {
+            return abort(logger, "--watch can't be used with the daemon");
+        }
+        if (isWatchMode && isArchive) {
+            return abort(logger, "--watch can't be used with an archive");
+        }
+        if (isWatchMode && isValidateMode) {
+            return abort(logger, "--watch can't be combined with --validate");
+        }
+
+        if (!entryPaths.isEmpty() && isWatchMode) {
+            return abort(logger, "--watch can't be combined with --entry");
+        }
+
+        List<Target> targets = null;
+        if (targetsFile != null) {
+            if (!entryPaths.isEmpty()) {
+                return abort(logger, "--entry can't be combined with --targets");
+            }
+            if (isOutputFileSet) {
+                return abort(logger, "-o can't be combined with --targets");
+            }
+            if (isWatchMode) {
+                return abort(logger, "--watch can't be combined with --targets");
+            }
+
+            final var readTargets = readTargets(baseDirectory, targetsFile);
+            if (readTargets.isError()) {
+                return abort(logger, "%s", readTargets.getError());
             }
+            targets = readTargets.getValue();
         }
 
         logger.setLogLevel(isQuietMode ? LogLevel.WARN : LogLevel.INFO);
         logger.info("Starting for root folder: '%s'", rootPath);
-        final var fileNodes = findFiles(rootDirectory, outputFile);
 
-        // Check that all dependencies have been resolved.
-        assertDependenciesResolved(fileNodes);
+        final FileSystem archive;
+        final Path rootDirectory;
+        try {
+            archive = isArchive ? FileSystems.newFileSystem(rootFile.toPath()) : null;
+            rootDirectory = archive != null ? archive.getPath("/") : rootFile.toPath();
+        } catch (final IOException | ProviderNotFoundException e) {
+            return abort(logger, "Failed to open the archive '%s': %s", rootPath, e.getMessage());
+        }
 
-        logger.info("Analyzed %d files, starting topological sort", fileNodes.size());
-        final var sorter = new TopologicalSorter<>(fileNodes.keySet(), fileNodes::get);
-        final var sortedFiles = sorter.sort();
+        try {
+            final var ignoreFile = rootDirectory.resolve(IgnoreRules.FILE_NAME);
+            if (Files.isRegularFile(ignoreFile)) {
+                try {
+                    ignorePatterns.addAll(0, Files.readAllLines(ignoreFile));
+                } catch (final IOException e) {
+                    return abort(logger, "Failed to read '%s': %s", ignoreFile, e.getMessage());
+                }
+            }
 
-        // Files contain a circular dependency.
-        if (sortedFiles == null) {
-            logCycle(sorter);
-            return;
-        }
+            final var ignoreRules = IgnoreRules.compile(ignorePatterns);
+            if (ignoreRules.isError()) {
+                return abort(logger, "%s", ignoreRules.getError());
+            }
 
-        logger.info("Files sorted, compiling output file");
-        writeOutputFile(outputFile, sortedFiles);
-        logger.success("Output of %d files saved to '%s'", sortedFiles.size(), rootPath);
-    }
+            final var optionsBuilder = RequireCatOptions.builder()
+                    .headerOnly(isHeaderOnly)
+                    .readAheadBytes(readAheadBytes)
+                    .compressed(isCompressed)
+                    .ignoreRules(ignoreRules.getValue())
+                    .ignore(ignoreFile)
+                    .warningListener(warning -> logger.warn("%s", warning));
+            final var outputFiles = targets == null
+                    ? List.of(outputFile)
+                    : targets.stream().map(target -> target.outputFile).toList();
+            for (final var file : outputFiles) {
+                optionsBuilder.ignore(file.toPath());
+                if (isIncremental) {
+                    optionsBuilder.ignore(SegmentIndex.indexFileOf(file).toPath());
+                }
+                if (isSkipUnchanged) {
+                    optionsBuilder.ignore(OutputFingerprint.fingerprintFileOf(file).toPath());
+                }
+            }
+            if (targetsFile != null) {
+                optionsBuilder.ignore(targetsFile.toPath());
+            }
+            if (metricsFile != null) {
+                optionsBuilder.ignore(metricsFile.toPath());
+            }
+            if (reportFile != null) {
+                optionsBuilder.ignore(reportFile.toPath());
+            }
 
-    /**
-     * Checks that all dependencies have been resolved.
-     * Exits with an error if any dependency is missing.
-     * @param fileNodes The map of file nodes.
-     */
-    private static void assertDependenciesResolved(final @NotNull Map<File, List<File>> fileNodes) {
-        for (final var dependencies : fileNodes.values()) {
-            for (final var dependency : dependencies) {
-                if (!fileNodes.containsKey(dependency)) {
-                    exitWithError("File '%s' required by '%s' does not exist", dependency.getPath(),
-                            dependency.getPath());
-                    return;
+            if (isValidateMode) {
+                List<Path> entryFiles = null;
+                if (!entryPaths.isEmpty()) {
+                    entryFiles = entryPaths.stream().map(rootDirectory::resolve).toList();
+                } else if (targets != null) {
+                    entryFiles = targets.stream().map(target -> rootDirectory.resolve(target.entryPath)).toList();
+                }
+                return validate(new RequireCatEngine(optionsBuilder.build()), rootDirectory, entryFiles, reportFile,
+                        metricsFile);
+            }
+
+            DependencyCache cache = null;
+            if (cacheFile != null) {
+                optionsBuilder.ignore(cacheFile.toPath());
+                cache = DependencyCache.load(cacheFile, rootDirectory, useCacheContentHash, isHeaderOnly);
+            } else if (daemon != null && archive == null) {
+                cache = daemon.getWarmCache(rootDirectory, isHeaderOnly, useCacheContentHash);
+            }
+
+            final var engine = new RequireCatEngine(optionsBuilder.build());
+            final var metrics = new Metrics();
+            final Map<Path, List<RequireStatement>> parsedFiles;
+            try (final var phase = metrics.startPhase("walk")) {
+                if (entryPaths.isEmpty()) {
+                    parsedFiles = engine.discover(rootDirectory, cache, metrics);
+                } else {
+                    final var entryFiles = entryPaths.stream().map(rootDirectory::resolve).toList();
+                    final var discoveredFiles = engine.discoverFrom(rootDirectory, entryFiles, cache, metrics);
+                    if (discoveredFiles.isError()) {
+                        return abort(logger, "%s", discoveredFiles.getError());
+                    }
+                    parsedFiles = discoveredFiles.getValue();
                 }
+                phase.setItems(parsedFiles.size());
             }
+
+            if (cacheFile != null) {
+                try {
+                    cache.save();
+                } catch (final IOException e) {
+                    logger.warn("Failed to save the dependency cache to '%s': %s", cacheFile.getPath(), e.getMessage());
+                }
+            } else if (daemon != null && archive == null) {
+                daemon.keepWarmCache(rootDirectory, isHeaderOnly, useCacheContentHash, cache.renew());
+            }
+
+            final WriteMode writeMode;
+            if (isIncremental) {
+                writeMode = WriteMode.INCREMENTAL;
+            } else if (isSkipUnchanged) {
+                writeMode = useFingerprintContentHash ? WriteMode.SKIP_UNCHANGED_HASH : WriteMode.SKIP_UNCHANGED;
+            } else {
+                writeMode = WriteMode.OVERWRITE;
+            }
+
+            final ErrorOr<?> result = targets == null
+                    ? build(engine, rootDirectory, parsedFiles, outputFile, writeMode, metrics)
+                    : buildTargets(engine, rootDirectory, parsedFiles, targets, writeMode, metrics);
+
+            if (metricsFile != null) {
+                try {
+                    metrics.writeJson(metricsFile, !result.isError());
+                } catch (final IOException e) {
+                    logger.warn("Failed to write metrics to '%s': %s", metricsFile.getPath(), e.getMessage());
+                }
+            }
+
+            if (!isWatchMode) {
+                return result.isError() ? abort(logger, "%s", result.getError()) : 0;
+            }
+
+            if (result.isError()) {
+                logger.error("%s", result.getError());
+            }
+
+            final var finalOutputFile = outputFile;
+            final var watcher = new DirectoryWatcher(rootDirectory, engine.getOptions().getIgnoredFiles(),
+                    engine.getOptions().getIgnoreRules(), engine::parse,
+                    files -> {
+                        final var rebuildResult = build(engine, rootDirectory, files, finalOutputFile, writeMode,
+                                new Metrics());
+                        if (rebuildResult.isError()) {
+                            logger.error("%s", rebuildResult.getError());
+                        }
+                    });
+
+            try {
+                logger.info("Watching '%s' for changes", rootPath);
+                watcher.watch(parsedFiles);
+            } catch (final IOException e) {
+                return abort(logger, "Failed to watch the root folder: %s", e.getMessage());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 0;
+        } finally {
+            closeArchive(archive);
         }
     }
 
     /**
-     * Logs the cycle (a circular dependency) that was found in the dependency graph.
-     * This method assumes that such cycle exists.
-     * @param sorter The sorter that found the cycle.
-     * @param <T> The type of the nodes in the graph.
+     * Resolves the root directory argument.
+     * @param workingDirectory The directory to resolve a relative path against,
+     *                         null for the working directory of this process.
+     * @param rootPath The root directory argument.
+     * @return The root directory, normalized if it was resolved against the given working directory.
      */
-    private static <T> void logCycle(final @NotNull TopologicalSorter<T> sorter) {
-        final var cycle = sorter.getCycle();
-        assert cycle != null && !cycle.isEmpty();
+    static @NotNull File resolveRoot(final @Nullable File workingDirectory, final @NotNull String rootPath) {
+        if (workingDirectory == null || !isValidPath(rootPath)) {
+            return new File(rootPath);
+        }
+        return workingDirectory.toPath().resolve(rootPath).normalize().toFile();
+    }
 
-        final var stringBuilder = new StringBuilder();
-        stringBuilder.append("Files contain a circular dependency:%n");
-        stringBuilder.append(cycle.get(0));
-        stringBuilder.append("%n");
+    /**
+     * Validates the root directory and logs every problem found, without writing any output.
+     * @param engine The engine to validate with.
+     * @param rootDirectory The root directory.
+     * @param entryFiles The entry files to validate the files they need of, or null for every file.
+     * @param reportFile The file to write the JSON report to or null.
+     * @param metricsFile The file to write the metrics to or null.
+     * @return The exit code: 0 only if no problems were found.
+     */
+    private int validate(final @NotNull RequireCatEngine engine,
+                         final @NotNull Path rootDirectory,
+                         final @Nullable List<Path> entryFiles,
+                         final @Nullable File reportFile,
+                         final @Nullable File metricsFile) {
+        final var metrics = new Metrics();
+        final var result = engine.validate(rootDirectory, entryFiles, metrics);
+
+        if (metricsFile != null) {
+            try {
+                metrics.writeJson(metricsFile, !result.isError() && result.getValue().isValid());
+            } catch (final IOException e) {
+                logger.warn("Failed to write metrics to '%s': %s", metricsFile.getPath(), e.getMessage());
+            }
+        }
+        if (result.isError()) {
+            return abort(logger, "%s", result.getError());
+        }
 
-        for (int i = 1; i < cycle.size(); i++) {
-            stringBuilder.append("\t<- ");
-            stringBuilder.append(cycle.get(i));
-            stringBuilder.append("%n");
+        final var report = result.getValue();
+        for (final var diagnostic : report.getDiagnostics()) {
+            logger.error("%s", diagnostic);
         }
 
-        stringBuilder.append("\t<- ");
-        stringBuilder.append(cycle.get(0));
-        stringBuilder.append("%n\t<- ...");
+        if (reportFile != null) {
+            try {
+                report.writeJson(reportFile);
+            } catch (final IOException e) {
+                logger.warn("Failed to write the validation report to '%s': %s", reportFile.getPath(),
+                        e.getMessage());
+            }
+        }
 
-        exitWithError(stringBuilder.toString());
+        if (!report.isValid()) {
+            return abort(logger, "Validation of %d files found %d problems", report.getFileCount(),
+                    report.getDiagnostics().size());
+        }
+        logger.success("Validated %d files, no problems found", report.getFileCount());
+        return 0;
     }
 
     /**
-     * Writes the result of topologically sorted files into the output file.
+     * Resolves, sorts and concatenates the given parsed files into the output file.
+     * @param engine The engine to build with.
+     * @param rootDirectory The root directory to resolve 'require' statements against.
+     * @param parsedFiles The 'require' statements of every file in the root directory.
      * @param outputFile The output file.
-     * @param sortedFiles The sorted files.
+     * @param writeMode How to write the output.
+     * @param metrics The metrics to record the phases in.
+     * @return The sorted files that were written or an error.
      */
-    private static void writeOutputFile(final @NotNull File outputFile,
-                                        final @NotNull List<File> sortedFiles) {
-        // Output file already exists.
-        if (outputFile.isFile()) {
-            logger.warn("Output file '%s' already exists, overwriting it", outputFile.getPath());
+    private @NotNull ErrorOr<List<Path>> build(final @NotNull RequireCatEngine engine,
+                                                      final @NotNull Path rootDirectory,
+                                                      final @NotNull Map<Path, List<RequireStatement>> parsedFiles,
+                                                      final @NotNull File outputFile,
+                                                      final @NotNull WriteMode writeMode,
+                                                      final @NotNull Metrics metrics) {
+        logger.info("Analyzed %d files, starting topological sort", parsedFiles.size());
+        final var sortResult = engine.sort(rootDirectory, parsedFiles, metrics);
+        if (sortResult.isError()) {
+            return sortResult;
         }
 
-        try (final var outputWriter = new FileWriter(outputFile, false)) {
-            for (final var file : sortedFiles) {
-                final var inputScanner = new Scanner(file);
-                while (inputScanner.hasNextLine()) {
-                    outputWriter.write(inputScanner.nextLine());
-                    outputWriter.write(System.lineSeparator());
-                }
-                inputScanner.close();
-            }
-        } catch (final IOException e) {
-            exitWithError("Failed to write to the output file: %s", e.getMessage());
+        logger.info("Files sorted, compiling output file");
+        final var sortedFiles = sortResult.getValue();
+        final ErrorOr<List<Path>> writeResult;
+        try (final var phase = metrics.startPhase("write")) {
+            writeResult = writeMode == WriteMode.INCREMENTAL
+                    ? writeOutputFileIncrementally(outputFile, sortedFiles, engine.getOptions().getReadAheadBytes())
+                    : writeOutputFile(engine, outputFile, sortedFiles, writeMode);
+            metrics.setByteCount(outputFile.length());
+            phase.setItems(outputFile.length());
         }
+        if (writeResult.isError()) {
+            return writeResult;
+        }
+
+        logger.success("Output of %d files saved to '%s'", sortedFiles.size(), outputFile.getPath());
+        return writeResult;
     }
 
     /**
-     * Checks if the given path is valid.
-     * @param path The path to check.
-     * @return True if the path is valid, false otherwise.
+     * Resolves the parsed files once and concatenates the files every target's entry needs
+     * into the target's output file. The outputs are written in parallel.
+     * @param engine The engine to build with.
+     * @param rootDirectory The root directory to resolve 'require' statements against.
+     * @param parsedFiles The 'require' statements of every file in the root directory.
+     * @param targets The targets.
+     * @param writeMode How to write every output.
+     * @param metrics The metrics to record the phases in.
+     * @return The number of written outputs or an error if any target failed.
      */
-    private static boolean isValidPath(final @NotNull String path) {
-        try {
-            Paths.get(path);
-        } catch (InvalidPathException | NullPointerException ignored) {
-            return false;
+    private @NotNull ErrorOr<Integer> buildTargets(final @NotNull RequireCatEngine engine,
+                                                   final @NotNull Path rootDirectory,
+                                                   final @NotNull Map<Path, List<RequireStatement>> parsedFiles,
+                                                   final @NotNull List<Target> targets,
+                                                   final @NotNull WriteMode writeMode,
+                                                   final @NotNull Metrics metrics) {
+        logger.info("Analyzed %d files, sorting the files of %d targets", parsedFiles.size(), targets.size());
+        final var entryFiles = targets.stream().map(target -> rootDirectory.resolve(target.entryPath)).toList();
+        final var sortResult = engine.sortTargets(rootDirectory, parsedFiles, entryFiles, metrics);
+        if (sortResult.isError()) {
+            return ErrorOr.error("%s", sortResult.getError());
         }
-        return true;
-    }
 
-    /**
-     * Prints the usage message of the program.
-     */
-    private static void printUsage() {
-        System.out.println("Usage: java -jar RequireCat.jar <root_directory> [-q] [-o=<output_file>]");
-        System.out.println("Options:");
-        System.out.println("\t-q\tQuiet mode. Only log warnings and errors.");
-        System.out.println("\t-o\tOutput file. If not specified, the output will be saved to 'out.txt'.");
+        logger.info("Targets sorted, compiling output files");
+        final var sortedTargets = sortResult.getValue();
+        final var failedCount = new AtomicInteger();
+        try (final var phase = metrics.startPhase("write")) {
+            IntStream.range(0, targets.size()).parallel().forEach(i -> {
+                final var outputFile = targets.get(i).outputFile;
+                final var sortedFiles = sortedTargets.get(i);
+                final ErrorOr<List<Path>> writeResult;
+                if (sortedFiles.isError()) {
+                    writeResult = sortedFiles;
+                } else if (writeMode == WriteMode.INCREMENTAL) {
+                    writeResult = writeOutputFileIncrementally(outputFile, sortedFiles.getValue(),
+                            engine.getOptions().getReadAheadBytes());
+                } else {
+                    writeResult = writeOutputFile(engine, outputFile, sortedFiles.getValue(), writeMode);
+                }
+
+                if (writeResult.isError()) {
+                    logger.error("Failed to build '%s': %s", outputFile.getPath(), writeResult.getError());
+                    failedCount.incrementAndGet();
+                } else {
+                    logger.success("Output of %d files saved to '%s'", writeResult.getValue().size(),
+                            outputFile.getPath());
+                }
+            });
+
+            final long byteCount = targets.stream().mapToLong(target -> target.outputFile.length()).sum();
+            metrics.setByteCount(byteCount);
+            phase.setItems(byteCount);
+        }
+
+        if (failedCount.get() > 0) {
+            return ErrorOr.error("%d of %d targets failed", failedCount.get(), targets.size());
+        }
+        return ErrorOr.ok(targets.size());
     }
 
     /**
-     * Finds all files in the given 'root' directory and returns a list of the
-     * respected file paths with their dependencies.
-     * Traverses the directories in a breadth-first search manner.
-     * 
-     * @param rootDirectory The root directory to search for files.
-     * @param outFile The output file to be ignored to avoid infinite looping or null.
-     * @return A list of file paths with their dependencies.
+     * Reads the targets file: every non-blank line that does not start with '#' is an entry file
+     * relative to the root and its output file relative to the base directory, separated by '->'.
+     * @param baseDirectory The directory the output files are relative to.
+     * @param targetsFile The targets file.
+     * @return The targets or an error.
      */
-    private static @NotNull Map<File, List<File>> findFiles(final @NotNull File rootDirectory,
-                                                            final @Nullable File outFile) {
-        if (!rootDirectory.isDirectory()) {
-            throw new IllegalArgumentException("Root path is not a directory");
+    private static @NotNull ErrorOr<List<Target>> readTargets(final @NotNull File baseDirectory,
+                                                              final @NotNull File targetsFile) {
+        final List<String> lines;
+        try {
+            lines = Files.readAllLines(targetsFile.toPath());
+        } catch (final IOException e) {
+            return ErrorOr.error("Failed to read the targets file '%s': %s", targetsFile.getPath(), e.getMessage());
         }
 
-        final var fileNodes = new HashMap<File, List<File>>();
-
-        final Queue<File> directoryQueue = new LinkedList<>();
-        directoryQueue.add(rootDirectory);
+        final var targets = new ArrayList<Target>();
+        final var outputFiles = new HashSet<File>();
+        for (int i = 0; i < lines.size(); ++i) {
+            final var line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
 
-        while (!directoryQueue.isEmpty()) {
-            final var currentDirectory = directoryQueue.remove();
-            final File[] subObjects = currentDirectory.listFiles();
+            final var paths = line.split("->");
+            if (paths.length != 2) {
+                return ErrorOr.error("(%s:%d) Expected '<entry_file> -> <output_file>'", targetsFile.getPath(), i + 1);
+            }
+            final var entryPath = DependencyGraph.normalizePath(paths[0].strip());
+            final var outputPath = paths[1].strip();
+            if (paths[0].isBlank() || entryPath == null || outputPath.isEmpty() || !isValidPath(outputPath)) {
+                return ErrorOr.error("(%s:%d) Expected '<entry_file> -> <output_file>'", targetsFile.getPath(), i + 1);
+            }
 
-            if (subObjects == null) {
-                continue;
+            final var target = new Target(entryPath, new File(baseDirectory, outputPath));
+            if (!outputFiles.add(target.outputFile)) {
+                return ErrorOr.error("(%s:%d) Output file '%s' is already used by another target",
+                        targetsFile.getPath(), i + 1, outputPath);
             }
+            targets.add(target);
+        }
 
-            for (final File subObject : subObjects) {
-                if (subObject.isDirectory()) {
-                    directoryQueue.add(subObject);
-                } else if (subObject.isFile()) {
-                    // Ignore the output file.
-                    if (subObject.equals(outFile)) {
-                        continue;
-                    }
+        return ErrorOr.ok(targets);
+    }
 
-                    final var files = getFileDependencies(rootDirectory, subObject);
-                    if (files != null) {
-                        fileNodes.put(subObject, files);
-                    }
-                }
+    /**
+     * Writes the result of topologically sorted files into the output file.
+     * When unchanged outputs are skipped, the fingerprint of the sorted files is compared with the one
+     * saved next to the output by the previous run and the output is only written if they differ.
+     * @param engine The engine to write with.
+     * @param outputFile The output file.
+     * @param sortedFiles The sorted files.
+     * @param writeMode Whether and how to skip an unchanged output.
+     * @return The sorted files or an error if the output could not be written.
+     */
+    private @NotNull ErrorOr<List<Path>> writeOutputFile(final @NotNull RequireCatEngine engine,
+                                                                final @NotNull File outputFile,
+                                                                final @NotNull List<Path> sortedFiles,
+                                                                final @NotNull WriteMode writeMode) {
+        OutputFingerprint fingerprint = null;
+        if (writeMode == WriteMode.SKIP_UNCHANGED || writeMode == WriteMode.SKIP_UNCHANGED_HASH) {
+            try {
+                fingerprint = OutputFingerprint.of(sortedFiles, engine.getOptions().isCompressed() ? "gzip" : "plain",
+                        writeMode == WriteMode.SKIP_UNCHANGED_HASH);
+            } catch (final IOException e) {
+                return ErrorOr.error("Failed to read the files of the output: %s", e.getMessage());
+            }
+
+            if (fingerprint.matches(outputFile)) {
+                logger.info("Output file '%s' is up to date", outputFile.getPath());
+                return ErrorOr.ok(sortedFiles);
             }
         }
 
-        return fileNodes;
+        // Output file already exists.
+        if (outputFile.isFile()) {
+            logger.warn("Output file '%s' already exists, overwriting it", outputFile.getPath());
+        }
+
+        final ErrorOr<List<Path>> writeResult;
+        try (final var outputChannel = FileChannel.open(outputFile.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeResult = engine.write(sortedFiles, outputChannel);
+        } catch (final IOException e) {
+            return ErrorOr.error("Failed to write to the output file: %s", e.getMessage());
+        }
+
+        if (fingerprint != null && !writeResult.isError()) {
+            try {
+                fingerprint.save(outputFile);
+            } catch (final IOException e) {
+                logger.warn("Failed to save the fingerprint of the output file: %s", e.getMessage());
+            }
+        }
+        return writeResult;
     }
 
     /**
-     * Parses the given file and returns a list of file's dependencies.
-     * Returns null if the file cannot be read.
-     * @param rootDirectory The root directory to be used to resolve relative path in 'require' statements.
-     * @param file The file to parse.
-     * @return A list of files that the given file depends on or null if the file cannot be read.
+     * Writes the result of topologically sorted files into the output file, rewriting only what changed.
+     * The segment index saved next to the output by the previous run tells how many leading files
+     * are still the same, the output is truncated after them and the rest of the files are written again.
+     * Without a valid index the whole output is written and the index is created.
+     * @param outputFile The output file.
+     * @param sortedFiles The sorted files.
+     * @param readAheadBytes The memory budget for reading files ahead, 0 to disable read-ahead.
+     * @return The sorted files or an error if the output could not be written.
      */
-    private static List<File> getFileDependencies(final @NotNull File rootDirectory,
-                                                  final @NotNull File file) {
-        try (final var inputScanner = new Scanner(file)) {
-            final List<File> dependencies = new ArrayList<>();
-            int lineNumber = 0;
-
-            while (inputScanner.hasNextLine()) {
-                lineNumber++;
-                final String line = inputScanner.nextLine();
-
-                if (!line.startsWith("require ")) {
-                    continue;
-                }
+    private @NotNull ErrorOr<List<Path>> writeOutputFileIncrementally(final @NotNull File outputFile,
+                                                                            final @NotNull List<Path> sortedFiles,
+                                                                            final long readAheadBytes) {
+        final var index = SegmentIndex.load(outputFile);
+        final int unchangedCount = index == null ? 0 : index.countUnchangedSegments(sortedFiles);
+
+        if (index == null) {
+            if (outputFile.isFile()) {
+                logger.warn("Output file '%s' already exists and has no valid index, overwriting it",
+                        outputFile.getPath());
+            }
+        } else if (unchangedCount == sortedFiles.size() && unchangedCount == index.getSegmentCount()) {
+            logger.info("Output file '%s' is up to date", outputFile.getPath());
+            return ErrorOr.ok(sortedFiles);
+        } else {
+            logger.info("Keeping %d of %d files in the output file, rewriting the rest", unchangedCount,
+                    sortedFiles.size());
+        }
 
-                final var dependencyFilePath = parseRequireStatement(line);
-                if (dependencyFilePath.isError()) {
-                    logger.warn("(%s:%d) Could not parse 'require' statement, skipping it: %s", file.getPath(),
-                            lineNumber, dependencyFilePath.getError());
-                    continue;
-                }
+        final var changedFiles = sortedFiles.subList(unchangedCount, sortedFiles.size());
+        final var segments = new ArrayList<SegmentIndex.Segment>(sortedFiles.size());
+        if (index != null) {
+            segments.addAll(index.getSegments(unchangedCount));
+        }
 
-                final var dependencyFile = new File(rootDirectory, dependencyFilePath.getValue());
-                if (!dependencyFile.isFile()) {
-                    exitWithError("(%s:%d) 'require' statement points to an invalid file",
-                            file.getPath(), lineNumber);
-                    return null;
-                }
+        try {
+            for (final var file : changedFiles) {
+                segments.add(SegmentIndex.Segment.of(file));
+            }
 
-                dependencies.add(dependencyFile);
+            try (final var outputChannel = FileChannel.open(outputFile.toPath(), StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE)) {
+                final long unchangedSize = index == null ? 0 : index.getOffset(unchangedCount);
+                outputChannel.truncate(unchangedSize);
+                outputChannel.position(unchangedSize);
+
+                final var segmentStart = new long[] {unchangedSize};
+                FileConcatenator.concatenate(changedFiles, outputChannel, readAheadBytes, i -> {
+                    final long segmentEnd = outputChannel.position();
+                    segments.get(unchangedCount + i).setRange(segmentStart[0], segmentEnd - segmentStart[0]);
+                    segmentStart[0] = segmentEnd;
+                });
             }
+        } catch (final IOException e) {
+            return ErrorOr.error("Failed to write to the output file: %s", e.getMessage());
+        }
 
-            return dependencies;
+        try {
+            new SegmentIndex(segments).save(outputFile);
         } catch (final IOException e) {
-            logger.warn("Can't read file '%s', skipping it", file.getPath());
-            return null;
+            logger.warn("Failed to save the index of the output file: %s", e.getMessage());
         }
+
+        return ErrorOr.ok(sortedFiles);
     }
 
     /**
-     * Parses the given 'require' statement and returns the dependency's file path or an error.
-     * The given statement is already assumed to start with "require ".
-     * Returns an error if the statement is invalid.
-     * A valid require statement is of the form "require ‘path/to/file’".
-     * Note that this method does not check the existence of the defined path.
-     * @param statement The 'require' statement to parse.
-     * @return The dependency's file name or error if the statement is invalid.
+     * Checks whether the given file name is the name of an archive that can be used as the root.
+     * @param fileName The file name.
+     * @return True for zip and jar archives.
      */
-    private static @NotNull ErrorOr<String> parseRequireStatement(final @NotNull String statement) {
-        if (!statement.startsWith("require ")) {
-            throw new IllegalArgumentException("statement does not start with 'require '");
-        }
+    private static boolean isArchiveName(final @NotNull String fileName) {
+        final var lowerCaseName = fileName.toLowerCase(Locale.ROOT);
+        return lowerCaseName.endsWith(".zip") || lowerCaseName.endsWith(".jar");
+    }
 
-        final var dependencyFormat = statement.substring(8);
-        if (dependencyFormat.isEmpty()) {
-            return ErrorOr.error("empty statement");
+    /**
+     * Closes the archive the root was read from, if any.
+     * @param archive The file system of the archive or null.
+     */
+    private void closeArchive(final @Nullable FileSystem archive) {
+        if (archive == null) {
+            return;
         }
-
-        if (!dependencyFormat.startsWith("‘")) {
-            return ErrorOr.error("statement must start with '‘', but starts with '%s'", dependencyFormat.charAt(0));
+        try {
+            archive.close();
+        } catch (final IOException e) {
+            logger.warn("Failed to close the archive: %s", e.getMessage());
         }
+    }
 
-        if (!dependencyFormat.endsWith("’")) {
-            return ErrorOr.error("statement must end with '’', but ends with '%s'", dependencyFormat.charAt(dependencyFormat.length() - 1));
+    /**
+     * Checks if the given path is valid.
+     * @param path The path to check.
+     * @return True if the path is valid, false otherwise.
+     */
+    private static boolean isValidPath(final @NotNull String path) {
+        try {
+            Paths.get(path);
+        } catch (InvalidPathException | NullPointerException ignored) {
+            return false;
         }
+        return true;
+    }
 
-        final var dependencyFilepath = dependencyFormat.substring(1, dependencyFormat.length() - 1);
-        if (dependencyFilepath.isEmpty()) {
-            return ErrorOr.error("empty dependency filepath");
+    /**
+     * Parses a non-negative number.
+     * @param value The string to parse.
+     * @return The number or null if the string is not a valid non-negative number.
+     */
+    private static @Nullable Long parseNonNegativeLong(final @NotNull String value) {
+        try {
+            final long result = Long.parseLong(value);
+            return result >= 0 ? result : null;
+        } catch (final NumberFormatException ignored) {
+            return null;
         }
+    }
 
-        return ErrorOr.ok(dependencyFilepath);
+    /**
+     * Prints the usage message of the program.
+     */
+    private void printUsage() {
+        console.println("Usage: java -jar RequireCat.jar <root_directory> [-q] [-o=<output_file>] "
+                + "[--cache=<cache_file>] [--cache-hash] [--watch] [--header-only] "
+                + "[--metrics=<metrics_file>] [--read-ahead=<megabytes>] [--incremental] [--gzip] "
+                + "[--skip-unchanged[=hash]] [--validate[=<report_file>]] [--targets=<targets_file>] "
+                + "[--entry=<entry_file>...] "
+                + "[--exclude=<pattern>...] [--include=<pattern>...]");
+        console.println("       java -jar RequireCat.jar --daemon=<socket_file>");
+        console.println("       java -jar RequireCat.jar --connect=<socket_file> <root_directory> [options]");
+        console.println("Options:");
+        console.println("\t<root_directory>\tThe root folder, or a zip or jar archive whose entries are read "
+                + "without extracting it. Other paths are then relative to the folder of the archive.");
+        console.println("\t-q\tQuiet mode. Only log warnings and errors.");
+        console.println("\t-o\tOutput file. If not specified, the output will be saved to 'out.txt'.");
+        console.println("\t--cache\tDependency cache file. Unchanged files are not parsed again on the next run.");
+        console.println("\t--cache-hash\tAlso check content hashes of files whose size or modification time changed.");
+        console.println("\t--watch\tKeep running and rebuild the output whenever files in the root folder change.");
+        console.println("\t--metrics\tWrite phase timings and counters of the run to the given JSON file.");
+        console.println("\t--read-ahead\tRead upcoming files ahead on several threads while writing, "
+                + "using at most the given amount of memory.");
+        console.println("\t--incremental\tKeep an index next to the output file and only rewrite "
+                + "the part of the output that follows the first changed file.");
+        console.println("\t--gzip\tCompress the output with gzip on all cores.");
+        console.println("\t--skip-unchanged\tKeep a fingerprint of the sorted files next to the output file and "
+                + "don't write the output again if it is the same. With '=hash' contents are hashed too.");
+        console.println("\t--validate\tDon't write the output, report every unreadable file, invalid or "
+                + "unresolved 'require' statement and cycle at once instead of stopping at the first one. "
+                + "With '=<report_file>' the report is also written to the given JSON file.");
+        console.println("\t--targets\tBuild one output per entry file from a single scan. Every line of the file "
+                + "is an entry file and its output file, separated by '->'.");
+        console.println("\t--entry\tOnly build the given entry file and the files it requires, "
+                + "without walking the rest of the root folder. Can be given several times.");
+        console.println("\t--exclude\tSkip files and directories matching the gitignore-style pattern, "
+                + "in addition to the rules of the " + IgnoreRules.FILE_NAME + " file in the root folder.");
+        console.println("\t--include\tDon't skip files and directories matching the pattern, "
+                + "even if an earlier rule excludes them.");
+        console.println("\t--header-only\tOnly look for 'require' statements before the first other non-blank line.");
+        console.println("\t--daemon\tStay resident, listen on the given Unix domain socket and serve builds "
+                + "sent with --connect, keeping the parsed files of every root in memory.");
+        console.println("\t--connect\tSend the build to the daemon listening on the given socket, "
+                + "or build in this process if there is none.");
+    }
+
+    /**
+     * How the output files are written.
+     */
+    private enum WriteMode {
+        /**
+         * The output is always written from scratch.
+         */
+        OVERWRITE,
+        /**
+         * Only the part of the output after the first changed file is written, see {@link SegmentIndex}.
+         */
+        INCREMENTAL,
+        /**
+         * The output is not written if the paths, sizes and modification times of its files are the same,
+         * see {@link OutputFingerprint}.
+         */
+        SKIP_UNCHANGED,
+        /**
+         * Same as {@link #SKIP_UNCHANGED}, but the contents of the files are compared too.
+         */
+        SKIP_UNCHANGED_HASH
+    }
+
+    /**
+     * An entry file, relative to the root, and the output file its closure is concatenated into.
+     */
+    private static class Target {
+        private final String entryPath;
+        private final File outputFile;
+
+        Target(final @NotNull String entryPath, final @NotNull File outputFile) {
+            this.entryPath = entryPath;
+            this.outputFile = outputFile;
+        }
     }
 
     /**
-     * Immediately exits the program with an error log.
+     * Logs an error that stops the run.
+     * @param logger The logger to log the error with.
      * @param message The error message.
      * @param args The arguments to be formatted into the message.
+     * @return The exit code of a failed run.
      */
-    private static void exitWithError(final @NotNull String message, final @NotNull Object... args) {
+    private static int abort(final @NotNull Logger logger,
+                             final @NotNull String message,
+                             final @NotNull Object... args) {
         logger.error(message + ", aborting", args);
-        System.exit(1);
+        return 1;
     }
 }
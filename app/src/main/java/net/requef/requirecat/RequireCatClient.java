@@ -0,0 +1,71 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+/**
+ * Thin client of {@link RequireCatDaemon}: forwards the command line arguments to the daemon
+ * and prints the output of the build as it arrives.
+ */
+public class RequireCatClient {
+    private RequireCatClient() {
+    }
+
+    /**
+     * Sends the arguments to the daemon and waits for the build to finish.
+     * Relative paths in the arguments are resolved against the working directory of this process.
+     * @param socketPath The path of the socket the daemon listens on.
+     * @param args The arguments of the build.
+     * @return The exit code of the build or null if no daemon is listening on the socket.
+     * @throws IOException if the connection to the daemon is lost.
+     */
+    public static @Nullable Integer forward(final @NotNull Path socketPath,
+                                            final @NotNull String @NotNull [] args) throws IOException {
+        final SocketChannel connection;
+        try {
+            connection = SocketChannel.open(UnixDomainSocketAddress.of(socketPath));
+        } catch (final IOException e) {
+            return null;
+        }
+
+        try (connection) {
+            final var output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(connection)));
+            output.writeInt(RequireCatDaemon.MAGIC);
+            output.writeUTF(Path.of("").toAbsolutePath().toString());
+            output.writeInt(args.length);
+            for (final var arg : args) {
+                output.writeUTF(arg);
+            }
+            output.flush();
+
+            final var input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(connection)));
+            var buffer = new byte[8192];
+            while (true) {
+                final byte frame;
+                try {
+                    frame = input.readByte();
+                } catch (final EOFException e) {
+                    throw new IOException("The daemon closed the connection before the build finished");
+                }
+
+                if (frame == RequireCatDaemon.EXIT_FRAME) {
+                    return input.readInt();
+                }
+
+                final int length = input.readInt();
+                if (length > buffer.length) {
+                    buffer = new byte[length];
+                }
+                input.readFully(buffer, 0, length);
+                System.out.write(buffer, 0, length);
+                System.out.flush();
+            }
+        }
+    }
+}
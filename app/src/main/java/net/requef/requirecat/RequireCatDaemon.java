@@ -0,0 +1,228 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A resident RequireCat process that serves builds sent by {@link RequireCatClient} over a Unix domain socket,
+ * so the JVM start, class loading and JIT compilation are paid once instead of on every build.
+ * The 'require' statements parsed for every root are kept in memory between builds and only the files
+ * whose size or modification time changed are parsed again.
+ * Builds of different roots run concurrently, builds of the same root one after another.
+ * <p>
+ * A request is the magic number, the working directory of the client and its arguments.
+ * The response is a sequence of frames: output frames carry the bytes the build logs,
+ * the final exit frame carries its exit code.
+ */
+public class RequireCatDaemon {
+    static final int MAGIC = 0x52434450; // "RCDP"
+    static final byte OUTPUT_FRAME = 0;
+    static final byte EXIT_FRAME = 1;
+
+    private final Path socketPath;
+    private final Logger logger;
+    private final ExecutorService workers = Executors.newCachedThreadPool(runnable -> {
+        final var thread = new Thread(runnable, "RequireCat-Daemon");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, ReentrantLock> rootLocks = new ConcurrentHashMap<>();
+    private final Map<String, DependencyCache> warmCaches = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new daemon.
+     * @param socketPath The path of the socket file to listen on.
+     * @param logger The logger of the daemon itself, builds log to their clients.
+     */
+    public RequireCatDaemon(final @NotNull Path socketPath, final @NotNull Logger logger) {
+        this.socketPath = socketPath;
+        this.logger = logger;
+    }
+
+    /**
+     * Listens on the socket and serves requests until the process is stopped.
+     * A socket file left behind by a daemon that is no longer running is replaced.
+     * @throws IOException if the socket can't be bound or another daemon is listening on it.
+     */
+    public void serve() throws IOException {
+        removeStaleSocket();
+
+        try (final var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Files.deleteIfExists(socketPath);
+                } catch (final IOException ignored) {
+                    // Nothing to do, the next daemon replaces the stale socket file.
+                }
+            }, "RequireCat-Daemon-Shutdown"));
+
+            logger.success("Listening on '%s'", socketPath);
+            while (true) {
+                final var connection = server.accept();
+                workers.execute(() -> serveConnection(connection));
+            }
+        }
+    }
+
+    /**
+     * Returns the parsed files kept for the given root since its last build.
+     * Must be called while the root is locked.
+     * @param rootDirectory The root directory on the default file system,
+     *                      as resolved by {@link RequireCat#resolveRoot(File, String)}.
+     * @param isHeaderOnly Whether only file headers are scanned.
+     * @param useContentHash Whether to store and check content hashes.
+     * @return The warm cache, empty on the first build of the root.
+     */
+    @NotNull DependencyCache getWarmCache(final @NotNull Path rootDirectory,
+                                          final boolean isHeaderOnly,
+                                          final boolean useContentHash) {
+        return warmCaches.computeIfAbsent(warmCacheKey(rootDirectory, isHeaderOnly, useContentHash),
+                key -> DependencyCache.inMemory(rootDirectory, useContentHash));
+    }
+
+    /**
+     * Keeps the parsed files of the given root for its next build.
+     * Must be called while the root is locked.
+     * @param rootDirectory The root directory.
+     * @param isHeaderOnly Whether only file headers are scanned.
+     * @param useContentHash Whether to store and check content hashes.
+     * @param cache The cache to keep.
+     */
+    void keepWarmCache(final @NotNull Path rootDirectory,
+                       final boolean isHeaderOnly,
+                       final boolean useContentHash,
+                       final @NotNull DependencyCache cache) {
+        warmCaches.put(warmCacheKey(rootDirectory, isHeaderOnly, useContentHash), cache);
+    }
+
+    private static @NotNull String warmCacheKey(final @NotNull Path rootDirectory,
+                                                final boolean isHeaderOnly,
+                                                final boolean useContentHash) {
+        // Statements scanned from headers only are not the statements of the whole file.
+        return rootDirectory + (isHeaderOnly ? "\0header" : "\0full") + (useContentHash ? "\0hash" : "");
+    }
+
+    private void removeStaleSocket() throws IOException {
+        if (!Files.exists(socketPath)) {
+            return;
+        }
+
+        boolean isListening;
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(socketPath)).close();
+            isListening = true;
+        } catch (final IOException e) {
+            isListening = false;
+        }
+
+        if (isListening) {
+            throw new IOException(String.format("Another daemon is listening on '%s'", socketPath));
+        }
+        Files.delete(socketPath);
+    }
+
+    /**
+     * Reads a request, runs the build with its output going to the client and sends the exit code.
+     */
+    private void serveConnection(final @NotNull SocketChannel connection) {
+        try (connection) {
+            final var input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(connection)));
+            final var output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(connection)));
+
+            if (input.readInt() != MAGIC) {
+                logger.warn("Ignoring a request that is not from a RequireCat client");
+                return;
+            }
+            final var workingDirectory = new File(input.readUTF());
+            final var args = new String[input.readInt()];
+            for (int i = 0; i < args.length; ++i) {
+                args[i] = input.readUTF();
+            }
+
+            final var console = new PrintStream(new OutputFrameStream(output), false, StandardCharsets.UTF_8);
+            int exitCode;
+            try (final var requestLogger = new Logger(console)) {
+                try {
+                    exitCode = run(workingDirectory, args, requestLogger, console);
+                } catch (final RuntimeException e) {
+                    requestLogger.error("Build failed: %s", e);
+                    exitCode = 1;
+                }
+            }
+            console.flush();
+
+            output.writeByte(EXIT_FRAME);
+            output.writeInt(exitCode);
+            output.flush();
+        } catch (final IOException e) {
+            logger.warn("Failed to serve a request: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Runs a build while holding the lock of its root, so builds of the same root don't overwrite
+     * each other's output and see the warm cache left by the previous one.
+     */
+    private int run(final @NotNull File workingDirectory,
+                    final @NotNull String @NotNull [] args,
+                    final @NotNull Logger requestLogger,
+                    final @NotNull PrintStream console) {
+        final var requireCat = new RequireCat(requestLogger, console, this);
+        if (args.length == 0) {
+            return requireCat.run(workingDirectory, args);
+        }
+
+        final var rootDirectory = RequireCat.resolveRoot(workingDirectory, args[0]);
+        final var lock = rootLocks.computeIfAbsent(rootDirectory.getPath(), key -> new ReentrantLock());
+        lock.lock();
+        try {
+            return requireCat.run(workingDirectory, args);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wraps everything written to it into output frames.
+     */
+    private static class OutputFrameStream extends OutputStream {
+        private final DataOutputStream connection;
+
+        OutputFrameStream(final @NotNull DataOutputStream connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte @NotNull [] bytes, final int offset, final int length) throws IOException {
+            connection.writeByte(OUTPUT_FRAME);
+            connection.writeInt(length);
+            connection.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            connection.flush();
+        }
+    }
+}
@@ -0,0 +1,663 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serial;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * Finds the files of a root directory, sorts them by their 'require' statements and concatenates them.
+ * The root can be on any file system, e.g. the root of a zip archive opened with
+ * {@link java.nio.file.FileSystems#newFileSystem(Path)}: its entries are listed, parsed and written
+ * without being extracted.
+ * Can be embedded into a long-lived process: failures are reported as {@link BuildResult} errors
+ * instead of exiting, the output goes to any channel or stream and nothing is printed.
+ * The engine keeps no state between calls, so it is safe to use from many threads at once.
+ */
+public class RequireCatEngine {
+    private final RequireCatOptions options;
+    private final RequireScanner requireScanner;
+
+    /**
+     * Constructs a new engine.
+     * @param options The options of every build.
+     */
+    public RequireCatEngine(final @NotNull RequireCatOptions options) {
+        this.options = options;
+        this.requireScanner = new RequireScanner(options.isHeaderOnly());
+    }
+
+    /**
+     * Returns the options of the engine.
+     * @return The options.
+     */
+    public @NotNull RequireCatOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Builds the output of the root directory into the given stream.
+     * The stream is not closed.
+     * @param rootDirectory The root directory.
+     * @param output The stream to write to.
+     * @return The files in the order they were written or an error.
+     */
+    public @NotNull BuildResult<List<Path>> build(final @NotNull Path rootDirectory,
+                                                  final @NotNull OutputStream output) {
+        return build(rootDirectory, Channels.newChannel(output), new Metrics());
+    }
+
+    /**
+     * Builds the output of the root directory into the given channel.
+     * The channel is not closed.
+     * @param rootDirectory The root directory.
+     * @param output The channel to write to.
+     * @param metrics The metrics to record the phases in.
+     * @return The files in the order they were written or an error.
+     */
+    public @NotNull BuildResult<List<Path>> build(final @NotNull Path rootDirectory,
+                                                  final @NotNull WritableByteChannel output,
+                                                  final @NotNull Metrics metrics) {
+        if (!Files.isDirectory(rootDirectory)) {
+            return BuildResult.failure(BuildResult.ErrorKind.INVALID_ROOT, "'%s' is not a valid directory",
+                    rootDirectory);
+        }
+
+        final Map<Path, List<RequireStatement>> parsedFiles;
+        try (final var phase = metrics.startPhase("walk")) {
+            parsedFiles = discover(rootDirectory, null, metrics);
+            phase.setItems(parsedFiles.size());
+        }
+
+        final var sortedFiles = sort(rootDirectory, parsedFiles, metrics);
+        if (sortedFiles.isError()) {
+            return sortedFiles;
+        }
+
+        try (final var phase = metrics.startPhase("write")) {
+            final long startPosition = positionOf(output);
+            final var result = write(sortedFiles.getValue(), output);
+            if (startPosition != -1) {
+                metrics.setByteCount(positionOf(output) - startPosition);
+                phase.setItems(positionOf(output) - startPosition);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Finds all files in the given root directory and parses their 'require' statements.
+     * Directories are listed and files are parsed concurrently on a fork-join pool
+     * sized to the number of available processors.
+     * @param rootDirectory The root directory to search for files.
+     * @param cache The cache of parsed files or null.
+     * @param metrics The metrics to record parsing in.
+     * @return The 'require' statements of every readable file.
+     */
+    public @NotNull Map<Path, List<RequireStatement>> discover(final @NotNull Path rootDirectory,
+                                                               final @Nullable DependencyCache cache,
+                                                               final @NotNull Metrics metrics) {
+        if (!Files.isDirectory(rootDirectory)) {
+            throw new IllegalArgumentException("Root path is not a directory");
+        }
+
+        return discover(rootDirectory, parserOf(this::scan, this::warningListenerOf, cache, metrics));
+    }
+
+    private @NotNull Map<Path, List<RequireStatement>> discover(
+            final @NotNull Path rootDirectory,
+            final @NotNull Function<Path, List<RequireStatement>> parser) {
+        final var fileNodes = new ConcurrentHashMap<Path, List<RequireStatement>>();
+        final var pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+        try {
+            pool.invoke(new DirectoryScanTask(rootDirectory, "", options.getIgnoredFiles(), options.getIgnoreRules(),
+                    parser, fileNodes));
+        } finally {
+            pool.shutdown();
+        }
+
+        return new HashMap<>(fileNodes);
+    }
+
+    /**
+     * Parses the given entry files and, following their 'require' statements, every file they depend on.
+     * Nothing else in the root directory is listed or opened, so the rest of a large tree costs nothing.
+     * Statements that point to missing or ignored files, or into ignored directories, are not followed,
+     * resolving them reports the error.
+     * Files are parsed concurrently on a fork-join pool sized to the number of available processors.
+     * @param rootDirectory The root directory to resolve 'require' statements against.
+     * @param entryFiles The entry files, which should be in the root directory.
+     * @param cache The cache of parsed files or null.
+     * @param metrics The metrics to record parsing in.
+     * @return The 'require' statements of every reachable readable file or an error if an entry is not a file.
+     */
+    public @NotNull BuildResult<Map<Path, List<RequireStatement>>> discoverFrom(
+            final @NotNull Path rootDirectory,
+            final @NotNull List<Path> entryFiles,
+            final @Nullable DependencyCache cache,
+            final @NotNull Metrics metrics) {
+        return discoverFrom(rootDirectory, entryFiles, parserOf(this::scan, this::warningListenerOf, cache, metrics));
+    }
+
+    private @NotNull BuildResult<Map<Path, List<RequireStatement>>> discoverFrom(
+            final @NotNull Path rootDirectory,
+            final @NotNull List<Path> entryFiles,
+            final @NotNull Function<Path, List<RequireStatement>> parser) {
+        final var ignoreRules = options.getIgnoreRules();
+        for (final var entryFile : entryFiles) {
+            final var relativePath = rootDirectory.relativize(entryFile).toString()
+                    .replace(rootDirectory.getFileSystem().getSeparator(), "/");
+            if (!Files.isRegularFile(entryFile) || options.getIgnoredFiles().contains(entryFile)
+                    || ignoreRules.isFileIgnored(relativePath)) {
+                return BuildResult.failure(BuildResult.ErrorKind.INVALID_ENTRY,
+                        "Entry file '%s' is not a file of the root directory", entryFile);
+            }
+        }
+
+        final var visitedFiles = ConcurrentHashMap.<Path>newKeySet();
+        final var fileNodes = new ConcurrentHashMap<Path, List<RequireStatement>>();
+        final var pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+        try {
+            pool.invoke(new CountedCompleter<Void>() {
+                @Override
+                public void compute() {
+                    for (final var entryFile : entryFiles) {
+                        if (visitedFiles.add(entryFile)) {
+                            addToPendingCount(1);
+                            new RequireFollowTask(this, entryFile, rootDirectory, options.getIgnoredFiles(),
+                                    ignoreRules, parser, visitedFiles, fileNodes).fork();
+                        }
+                    }
+                    tryComplete();
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+
+        return BuildResult.success(new HashMap<>(fileNodes));
+    }
+
+    /**
+     * Creates the parser of the discovery: it records every parse in the metrics and goes through the cache,
+     * which reports the invalid statements of cached files again.
+     */
+    private static @NotNull Function<Path, List<RequireStatement>> parserOf(
+            final @NotNull DependencyCache.Parser parser,
+            final @NotNull Function<Path, RequireScanner.ErrorListener> errorListeners,
+            final @Nullable DependencyCache cache,
+            final @NotNull Metrics metrics) {
+        final DependencyCache.Parser measuredParser = (file, errorListener) -> {
+            final var event = new SlowFileEvent();
+            event.begin();
+            final long startTime = System.nanoTime();
+            final var statements = parser.parse(file, errorListener);
+            metrics.recordParse(file, startTime, event);
+            return statements;
+        };
+        return cache == null
+                ? file -> measuredParser.parse(file, errorListeners.apply(file))
+                : file -> cache.getOrParse(file, measuredParser, errorListeners.apply(file));
+    }
+
+    /**
+     * Parses the given file and returns a list of its 'require' statements.
+     * Invalid statements are reported to the warning listener and skipped.
+     * Returns null if the file cannot be read.
+     * @param file The file to parse.
+     * @return A list of the file's 'require' statements or null if the file cannot be read.
+     */
+    public @Nullable List<RequireStatement> parse(final @NotNull Path file) {
+        return scan(file, warningListenerOf(file));
+    }
+
+    private @Nullable List<RequireStatement> scan(final @NotNull Path file,
+                                                  final @NotNull RequireScanner.ErrorListener errorListener) {
+        try {
+            return requireScanner.scan(file, errorListener);
+        } catch (final IOException e) {
+            options.getWarningListener().accept(String.format("Can't read file '%s', skipping it", file));
+            return null;
+        }
+    }
+
+    /**
+     * Creates the listener that reports the invalid statements of the given file to the warning listener.
+     */
+    private @NotNull RequireScanner.ErrorListener warningListenerOf(final @NotNull Path file) {
+        final var warningListener = options.getWarningListener();
+        return (lineNumber, error) -> warningListener.accept(String.format("(%s:%d) Could not parse 'require' "
+                + "statement, skipping it: %s", file, lineNumber, error));
+    }
+
+    /**
+     * Validates the root directory in a single pass: every file is parsed, every 'require' statement
+     * is resolved and the graph is searched for cycles, and every problem found on the way is collected
+     * instead of stopping at the first one. Files are parsed and resolved in parallel.
+     * The dependency cache is not used, so every file is read and its problems are reported first-hand.
+     * @param rootDirectory The root directory.
+     * @param entryFiles The entry files to validate the files they need of, or null for every file.
+     * @param metrics The metrics to record the phases in.
+     * @return The report or an error if the root or an entry file is invalid.
+     */
+    public @NotNull BuildResult<ValidationReport> validate(final @NotNull Path rootDirectory,
+                                                           final @Nullable List<Path> entryFiles,
+                                                           final @NotNull Metrics metrics) {
+        if (!Files.isDirectory(rootDirectory)) {
+            return BuildResult.failure(BuildResult.ErrorKind.INVALID_ROOT, "'%s' is not a valid directory",
+                    rootDirectory);
+        }
+
+        final var parseDiagnostics = new ConcurrentLinkedQueue<Diagnostic>();
+        final var parser = parserOf((file, errorListener) -> {
+            try {
+                return requireScanner.scan(file, errorListener);
+            } catch (final IOException e) {
+                parseDiagnostics.add(Diagnostic.of(Diagnostic.Kind.UNREADABLE_FILE, file.toString(), 0,
+                        "Can't read file: " + e.getMessage()));
+                return null;
+            }
+        }, file -> (lineNumber, error) -> parseDiagnostics.add(Diagnostic.of(Diagnostic.Kind.INVALID_STATEMENT,
+                file.toString(), lineNumber, "Could not parse 'require' statement: " + error)), null, metrics);
+
+        final Map<Path, List<RequireStatement>> parsedFiles;
+        try (final var phase = metrics.startPhase("walk")) {
+            if (entryFiles == null) {
+                parsedFiles = discover(rootDirectory, parser);
+            } else {
+                final var discoveredFiles = discoverFrom(rootDirectory, entryFiles, parser);
+                if (discoveredFiles.isError()) {
+                    return discoveredFiles.castError();
+                }
+                parsedFiles = discoveredFiles.getValue();
+            }
+            phase.setItems(parsedFiles.size());
+        }
+        metrics.setFileCount(parsedFiles.size());
+
+        final var diagnostics = new ArrayList<Diagnostic>(parseDiagnostics);
+        final DependencyGraph graph;
+        try (final var phase = metrics.startPhase("resolve")) {
+            graph = DependencyGraph.resolveAll(rootDirectory, parsedFiles, diagnostics);
+            metrics.setEdgeCount(graph.getEdgeCount());
+            phase.setItems(graph.getEdgeCount());
+        }
+
+        try (final var phase = metrics.startPhase("sort")) {
+            phase.setItems(graph.getNodeCount());
+            final var sorter = graph.newSorter();
+            if (sorter.sort() == null) {
+                for (final var cycle : Objects.requireNonNull(sorter.getCycles())) {
+                    final var paths = new ArrayList<String>(cycle.length);
+                    for (final int id : cycle) {
+                        paths.add(graph.getPath(id));
+                    }
+
+                    // The line of the first file that requires the next file of the cycle.
+                    final var statements = parsedFiles.get(graph.toFiles(new int[] {cycle[0]}).get(0));
+                    final var nextPath = paths.get(1 % paths.size());
+                    int lineNumber = 0;
+                    for (final var statement : statements) {
+                        if (nextPath.equals(DependencyGraph.resolvePath(rootDirectory, statement.getPath()))) {
+                            lineNumber = statement.getLineNumber();
+                            break;
+                        }
+                    }
+                    diagnostics.add(Diagnostic.cycle(paths, lineNumber));
+                }
+            }
+        }
+
+        return BuildResult.success(new ValidationReport(parsedFiles.size(), diagnostics));
+    }
+
+    /**
+     * Resolves the 'require' statements of the parsed files and sorts the files topologically.
+     * @param rootDirectory The root directory to resolve 'require' statements against.
+     * @param parsedFiles The 'require' statements of every file in the root directory.
+     * @param metrics The metrics to record the phases in.
+     * @return The sorted files or an error.
+     */
+    public @NotNull BuildResult<List<Path>> sort(final @NotNull Path rootDirectory,
+                                                 final @NotNull Map<Path, List<RequireStatement>> parsedFiles,
+                                                 final @NotNull Metrics metrics) {
+        metrics.setFileCount(parsedFiles.size());
+
+        final BuildResult<DependencyGraph> resolvedGraph;
+        try (final var phase = metrics.startPhase("resolve")) {
+            resolvedGraph = DependencyGraph.resolve(rootDirectory, parsedFiles);
+            if (!resolvedGraph.isError()) {
+                metrics.setEdgeCount(resolvedGraph.getValue().getEdgeCount());
+                phase.setItems(resolvedGraph.getValue().getEdgeCount());
+            }
+        }
+        if (resolvedGraph.isError()) {
+            return resolvedGraph.castError();
+        }
+
+        final var graph = resolvedGraph.getValue();
+        try (final var phase = metrics.startPhase("sort")) {
+            phase.setItems(graph.getNodeCount());
+            return sort(graph);
+        }
+    }
+
+    /**
+     * Resolves the 'require' statements of the parsed files once and sorts the files every entry file
+     * needs, that is the entry and its transitive dependencies, on the shared graph.
+     * Entries are sorted in parallel.
+     * A statement that can't be resolved fails all entries, a cycle or an unknown entry only fails its own.
+     * @param rootDirectory The root directory to resolve 'require' statements against.
+     * @param parsedFiles The 'require' statements of every file in the root directory.
+     * @param entryFiles The entry files, which should be in the root directory.
+     * @param metrics The metrics to record the phases in.
+     * @return The sorted files of every entry, in the order of the entries, or an error.
+     */
+    public @NotNull BuildResult<List<BuildResult<List<Path>>>> sortTargets(
+            final @NotNull Path rootDirectory,
+            final @NotNull Map<Path, List<RequireStatement>> parsedFiles,
+            final @NotNull List<Path> entryFiles,
+            final @NotNull Metrics metrics) {
+        metrics.setFileCount(parsedFiles.size());
+
+        final BuildResult<DependencyGraph> resolvedGraph;
+        try (final var phase = metrics.startPhase("resolve")) {
+            resolvedGraph = DependencyGraph.resolve(rootDirectory, parsedFiles);
+            if (!resolvedGraph.isError()) {
+                metrics.setEdgeCount(resolvedGraph.getValue().getEdgeCount());
+                phase.setItems(resolvedGraph.getValue().getEdgeCount());
+            }
+        }
+        if (resolvedGraph.isError()) {
+            return resolvedGraph.castError();
+        }
+
+        final var graph = resolvedGraph.getValue();
+        try (final var phase = metrics.startPhase("sort")) {
+            phase.setItems(entryFiles.size());
+            final var results = entryFiles.parallelStream()
+                    .map(entryFile -> {
+                        final int entry = graph.find(entryFile);
+                        if (entry == -1) {
+                            return BuildResult.<List<Path>>failure(BuildResult.ErrorKind.INVALID_ENTRY,
+                                    "Entry file '%s' is not a file of the root directory", entryFile);
+                        }
+                        return sort(graph.closureOf(entry));
+                    })
+                    .toList();
+            return BuildResult.success(results);
+        }
+    }
+
+    /**
+     * Sorts the files of the graph topologically.
+     * @param graph The resolved graph.
+     * @return The sorted files or the cycles of the graph.
+     */
+    private static @NotNull BuildResult<List<Path>> sort(final @NotNull DependencyGraph graph) {
+        final var sorter = graph.newSorter();
+        final int[] sortedIds = sorter.sort();
+
+        // Files contain a circular dependency.
+        if (sortedIds == null) {
+            final var cycles = new ArrayList<List<String>>();
+            for (final var cycle : Objects.requireNonNull(sorter.getCycles())) {
+                final var paths = new ArrayList<String>(cycle.length);
+                for (final int id : cycle) {
+                    paths.add(graph.getPath(id));
+                }
+                cycles.add(paths);
+            }
+            return BuildResult.circularDependency(cycles, formatCycles(cycles));
+        }
+
+        return BuildResult.success(graph.toFiles(sortedIds));
+    }
+
+    /**
+     * Concatenates the sorted files into the given channel, compressing them if the options say so.
+     * The channel is not closed.
+     * @param sortedFiles The sorted files.
+     * @param output The channel to write to.
+     * @return The sorted files or an error if the output could not be written.
+     */
+    public @NotNull BuildResult<List<Path>> write(final @NotNull List<Path> sortedFiles,
+                                                  final @NotNull WritableByteChannel output) {
+        try {
+            if (options.isCompressed()) {
+                final var compressedOutput = new ParallelGzipChannel(output);
+                try {
+                    FileConcatenator.concatenate(sortedFiles, compressedOutput, options.getReadAheadBytes());
+                } finally {
+                    compressedOutput.finish();
+                }
+            } else {
+                FileConcatenator.concatenate(sortedFiles, output, options.getReadAheadBytes());
+            }
+        } catch (final IOException e) {
+            return BuildResult.failure(BuildResult.ErrorKind.IO_ERROR, "Failed to write to the output file: %s",
+                    e.getMessage());
+        }
+
+        return BuildResult.success(sortedFiles);
+    }
+
+    /**
+     * Returns the position of the channel if it is seekable, so the number of written bytes can be measured,
+     * or -1 if it is not.
+     */
+    private static long positionOf(final @NotNull WritableByteChannel channel) {
+        if (channel instanceof SeekableByteChannel seekableChannel && channel.isOpen()) {
+            try {
+                return seekableChannel.position();
+            } catch (final IOException ignored) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Formats every cycle (a circular dependency) that was found in the dependency graph.
+     * Every file of a cycle requires the next one, and the last file requires the first one.
+     * @param cycles The paths of the files of every cycle, there should be at least one cycle.
+     * @return The cycles description.
+     */
+    private static @NotNull String formatCycles(final @NotNull List<List<String>> cycles) {
+        assert !cycles.isEmpty();
+
+        final var lineSeparator = System.lineSeparator();
+        final var stringBuilder = new StringBuilder();
+        if (cycles.size() == 1) {
+            stringBuilder.append("Files contain a circular dependency:");
+        } else {
+            stringBuilder.append(String.format("Files contain %d circular dependencies:", cycles.size()));
+        }
+
+        for (final var cycle : cycles) {
+            stringBuilder.append(lineSeparator);
+            stringBuilder.append(cycle.get(0));
+            stringBuilder.append(lineSeparator);
+
+            for (int i = 1; i < cycle.size(); i++) {
+                stringBuilder.append("\t-> ");
+                stringBuilder.append(cycle.get(i));
+                stringBuilder.append(lineSeparator);
+            }
+
+            stringBuilder.append("\t-> ");
+            stringBuilder.append(cycle.get(0));
+            stringBuilder.append(lineSeparator);
+            stringBuilder.append("\t-> ...");
+        }
+
+        return stringBuilder.toString();
+    }
+
+    /**
+     * A task that lists a single directory, forks itself for every subdirectory
+     * and parses every regular file in it. Ignored directories are pruned before they are listed.
+     */
+    private static class DirectoryScanTask extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+        private final String relativePath;
+        private final Set<Path> ignoredFiles;
+        private final IgnoreRules ignoreRules;
+        private final Function<Path, List<RequireStatement>> parser;
+        private final Map<Path, List<RequireStatement>> fileNodes;
+
+        DirectoryScanTask(final @NotNull Path directory,
+                          final @NotNull String relativePath,
+                          final @NotNull Set<Path> ignoredFiles,
+                          final @NotNull IgnoreRules ignoreRules,
+                          final @NotNull Function<Path, List<RequireStatement>> parser,
+                          final @NotNull Map<Path, List<RequireStatement>> fileNodes) {
+            this.directory = directory;
+            this.relativePath = relativePath;
+            this.ignoredFiles = ignoredFiles;
+            this.ignoreRules = ignoreRules;
+            this.parser = parser;
+            this.fileNodes = fileNodes;
+        }
+
+        @Override
+        protected void compute() {
+            final var subTasks = new ArrayList<RecursiveAction>();
+
+            try (final var subObjects = Files.newDirectoryStream(directory)) {
+                for (final var subObject : subObjects) {
+                    final var name = subObject.getFileName().toString();
+                    final var subObjectRelativePath = relativePath.isEmpty() ? name : relativePath + "/" + name;
+
+                    if (Files.isDirectory(subObject)) {
+                        if (!ignoreRules.isIgnored(subObjectRelativePath, true)) {
+                            subTasks.add(new DirectoryScanTask(subObject, subObjectRelativePath, ignoredFiles,
+                                    ignoreRules, parser, fileNodes));
+                        }
+                    } else if (Files.isRegularFile(subObject)) {
+                        // Ignore the output file and other service files.
+                        if (ignoredFiles.contains(subObject) || ignoreRules.isIgnored(subObjectRelativePath, false)) {
+                            continue;
+                        }
+
+                        subTasks.add(new FileParseTask(subObject, parser, fileNodes));
+                    }
+                }
+            } catch (final IOException | DirectoryIteratorException ignored) {
+                // Unreadable directories are skipped, same as the serial walker did.
+                return;
+            }
+
+            invokeAll(subTasks);
+        }
+    }
+
+    /**
+     * A task that parses a single file, stores its 'require' statements and forks itself
+     * for every required file that was not visited yet.
+     * Completion is counted instead of joined, so long chains of requires don't grow the stack.
+     */
+    private static class RequireFollowTask extends CountedCompleter<Void> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final Path file;
+        private final Path rootDirectory;
+        private final Set<Path> ignoredFiles;
+        private final IgnoreRules ignoreRules;
+        private final Function<Path, List<RequireStatement>> parser;
+        private final Set<Path> visitedFiles;
+        private final Map<Path, List<RequireStatement>> fileNodes;
+
+        RequireFollowTask(final @NotNull CountedCompleter<?> parent,
+                          final @NotNull Path file,
+                          final @NotNull Path rootDirectory,
+                          final @NotNull Set<Path> ignoredFiles,
+                          final @NotNull IgnoreRules ignoreRules,
+                          final @NotNull Function<Path, List<RequireStatement>> parser,
+                          final @NotNull Set<Path> visitedFiles,
+                          final @NotNull Map<Path, List<RequireStatement>> fileNodes) {
+            super(parent);
+            this.file = file;
+            this.rootDirectory = rootDirectory;
+            this.ignoredFiles = ignoredFiles;
+            this.ignoreRules = ignoreRules;
+            this.parser = parser;
+            this.visitedFiles = visitedFiles;
+            this.fileNodes = fileNodes;
+        }
+
+        @Override
+        public void compute() {
+            final var statements = parser.apply(file);
+            if (statements != null) {
+                fileNodes.put(file, statements);
+
+                for (final var statement : statements) {
+                    final var relativePath = DependencyGraph.normalizePath(statement.getPath());
+                    if (relativePath == null) {
+                        continue;
+                    }
+
+                    final var dependencyFile = rootDirectory.resolve(relativePath);
+                    if (!ignoredFiles.contains(dependencyFile) && visitedFiles.add(dependencyFile)
+                            && !ignoreRules.isFileIgnored(relativePath)
+                            && Files.isRegularFile(dependencyFile)) {
+                        addToPendingCount(1);
+                        new RequireFollowTask(this, dependencyFile, rootDirectory, ignoredFiles, ignoreRules, parser,
+                                visitedFiles, fileNodes).fork();
+                    }
+                }
+            }
+            tryComplete();
+        }
+    }
+
+    /**
+     * A task that parses a single file and stores its 'require' statements.
+     */
+    private static class FileParseTask extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final Path file;
+        private final Function<Path, List<RequireStatement>> parser;
+        private final Map<Path, List<RequireStatement>> fileNodes;
+
+        FileParseTask(final @NotNull Path file,
+                      final @NotNull Function<Path, List<RequireStatement>> parser,
+                      final @NotNull Map<Path, List<RequireStatement>> fileNodes) {
+            this.file = file;
+            this.parser = parser;
+            this.fileNodes = fileNodes;
+        }
+
+        @Override
+        protected void compute() {
+            final var statements = parser.apply(file);
+            if (statements != null) {
+                fileNodes.put(file, statements);
+            }
+        }
+    }
+}
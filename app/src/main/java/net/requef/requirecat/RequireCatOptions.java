@@ -0,0 +1,175 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Immutable options of {@link RequireCatEngine}, created with {@link #builder()}.
+ */
+public class RequireCatOptions {
+    private final boolean isHeaderOnly;
+    private final long readAheadBytes;
+    private final boolean isCompressed;
+    private final Set<Path> ignoredFiles;
+    private final IgnoreRules ignoreRules;
+    private final Consumer<String> warningListener;
+
+    private RequireCatOptions(final @NotNull Builder builder) {
+        this.isHeaderOnly = builder.isHeaderOnly;
+        this.readAheadBytes = builder.readAheadBytes;
+        this.isCompressed = builder.isCompressed;
+        this.ignoredFiles = Set.copyOf(builder.ignoredFiles);
+        this.ignoreRules = builder.ignoreRules;
+        this.warningListener = builder.warningListener;
+    }
+
+    /**
+     * Creates a builder with the default options.
+     * @return A new builder.
+     */
+    public static @NotNull Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns whether only the 'require' statements before the first other non-blank line are looked for.
+     * @return Whether only file headers are scanned.
+     */
+    public boolean isHeaderOnly() {
+        return isHeaderOnly;
+    }
+
+    /**
+     * Returns the memory budget for reading files ahead while writing, 0 if read-ahead is disabled.
+     * @return The read-ahead budget in bytes.
+     */
+    public long getReadAheadBytes() {
+        return readAheadBytes;
+    }
+
+    /**
+     * Returns whether the output is gzipped.
+     * @return Whether the output is compressed.
+     */
+    public boolean isCompressed() {
+        return isCompressed;
+    }
+
+    /**
+     * Returns the files that are skipped when the root directory is walked.
+     * @return The ignored files.
+     */
+    public @NotNull Set<Path> getIgnoredFiles() {
+        return ignoredFiles;
+    }
+
+    /**
+     * Returns the rules that exclude files and directories from the walk.
+     * @return The ignore rules.
+     */
+    public @NotNull IgnoreRules getIgnoreRules() {
+        return ignoreRules;
+    }
+
+    /**
+     * Returns the listener of warnings, such as unparsable 'require' statements and unreadable files.
+     * @return The warning listener.
+     */
+    public @NotNull Consumer<String> getWarningListener() {
+        return warningListener;
+    }
+
+    /**
+     * Builder of {@link RequireCatOptions}.
+     * By default whole files are scanned, nothing is read ahead, compressed or ignored
+     * and warnings are dropped.
+     */
+    public static class Builder {
+        private boolean isHeaderOnly = false;
+        private long readAheadBytes = 0;
+        private boolean isCompressed = false;
+        private final Set<Path> ignoredFiles = new HashSet<>();
+        private IgnoreRules ignoreRules = IgnoreRules.none();
+        private Consumer<String> warningListener = warning -> { };
+
+        private Builder() {
+        }
+
+        /**
+         * Sets whether to stop scanning a file at its first line that is neither blank nor a 'require' statement.
+         * @param isHeaderOnly Whether only file headers are scanned.
+         * @return This builder.
+         */
+        public @NotNull Builder headerOnly(final boolean isHeaderOnly) {
+            this.isHeaderOnly = isHeaderOnly;
+            return this;
+        }
+
+        /**
+         * Sets the memory budget for reading files ahead on several threads while writing.
+         * @param readAheadBytes The read-ahead budget in bytes, 0 to disable read-ahead.
+         * @return This builder.
+         */
+        public @NotNull Builder readAheadBytes(final long readAheadBytes) {
+            if (readAheadBytes < 0) {
+                throw new IllegalArgumentException("readAheadBytes must not be negative");
+            }
+            this.readAheadBytes = readAheadBytes;
+            return this;
+        }
+
+        /**
+         * Sets whether to gzip the output on all cores.
+         * @param isCompressed Whether the output is compressed.
+         * @return This builder.
+         */
+        public @NotNull Builder compressed(final boolean isCompressed) {
+            this.isCompressed = isCompressed;
+            return this;
+        }
+
+        /**
+         * Skips the given file when the root directory is walked, e.g. an output file inside the root.
+         * The path should start with the root path the engine is given.
+         * @param path The path of the file to ignore.
+         * @return This builder.
+         */
+        public @NotNull Builder ignore(final @NotNull Path path) {
+            ignoredFiles.add(path);
+            return this;
+        }
+
+        /**
+         * Sets the gitignore-style rules that exclude files and directories from the walk.
+         * Excluded directories are not listed and excluded files are not opened.
+         * @param ignoreRules The ignore rules.
+         * @return This builder.
+         */
+        public @NotNull Builder ignoreRules(final @NotNull IgnoreRules ignoreRules) {
+            this.ignoreRules = ignoreRules;
+            return this;
+        }
+
+        /**
+         * Sets the listener of warnings. It is called from many threads at once.
+         * @param warningListener The warning listener.
+         * @return This builder.
+         */
+        public @NotNull Builder warningListener(final @NotNull Consumer<String> warningListener) {
+            this.warningListener = warningListener;
+            return this;
+        }
+
+        /**
+         * Builds the options.
+         * @return The options.
+         */
+        public @NotNull RequireCatOptions build() {
+            return new RequireCatOptions(this);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds 'require' statements in files by scanning their raw bytes.
+ * Only the paths of the statements are decoded, the rest of the file is never turned into strings.
+ * Lines are split the same way {@link java.util.Scanner#nextLine()} splits them ("\r\n", "\n", "\r"
+ * and UTF-8 encoded U+0085, U+2028, U+2029), so the reported line numbers are the same.
+ * Files are assumed to be UTF-8 (or ASCII) encoded.
+ */
+public class RequireScanner {
+    private static final byte[] PREFIX = "require ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] OPENING_QUOTE = "‘".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] CLOSING_QUOTE = "’".getBytes(StandardCharsets.UTF_8);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> buffers =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    // Scanner states for terminators that can't be recognised by a single byte.
+    private static final int STATE_NONE = 0;
+    private static final int STATE_CR = 1;
+    private static final int STATE_C2 = 2;
+    private static final int STATE_E2 = 3;
+    private static final int STATE_E2_80 = 4;
+
+    /**
+     * Receives the 'require' statements that could not be parsed.
+     */
+    public interface ErrorListener {
+        /**
+         * Called for every invalid 'require' statement.
+         * @param lineNumber The 1-based number of the line the statement is on.
+         * @param error The description of the error.
+         */
+        void onError(int lineNumber, @NotNull String error);
+    }
+
+    private final boolean isHeaderOnly;
+
+    /**
+     * Constructs a new scanner.
+     * @param isHeaderOnly Whether to stop scanning a file at its first line that is
+     *                     neither blank nor a 'require' statement.
+     */
+    public RequireScanner(final boolean isHeaderOnly) {
+        this.isHeaderOnly = isHeaderOnly;
+    }
+
+    /**
+     * Scans the given file and returns its valid 'require' statements.
+     * @param file The file to scan.
+     * @param errorListener The listener of invalid 'require' statements.
+     * @return The valid 'require' statements of the file.
+     * @throws IOException if the file can't be read.
+     */
+    public @NotNull List<RequireStatement> scan(final @NotNull Path file,
+                                                final @NotNull ErrorListener errorListener) throws IOException {
+        final var buffer = buffers.get();
+        final var lines = new LineState(errorListener);
+
+        try (final var channel = Files.newByteChannel(file)) {
+            int state = STATE_NONE;
+
+            buffer.clear();
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                final int limit = buffer.limit();
+
+                for (int i = 0; i < limit; ++i) {
+                    final byte b = buffer.get(i);
+
+                    // Finish terminators that started on a previous byte.
+                    if (state == STATE_CR) {
+                        state = STATE_NONE;
+                        if (b == '\n') {
+                            if (!lines.endLine()) {
+                                return lines.statements;
+                            }
+                            continue;
+                        }
+                        if (!lines.endLine()) {
+                            return lines.statements;
+                        }
+                    } else if (state == STATE_C2) {
+                        state = STATE_NONE;
+                        if (b == (byte) 0x85) {
+                            if (!lines.endLine()) {
+                                return lines.statements;
+                            }
+                            continue;
+                        }
+                    } else if (state == STATE_E2) {
+                        if (b == (byte) 0x80) {
+                            state = STATE_E2_80;
+                            lines.append(b);
+                            continue;
+                        }
+                        state = STATE_NONE;
+                    } else if (state == STATE_E2_80) {
+                        state = STATE_NONE;
+                        if (b == (byte) 0xA8 || b == (byte) 0xA9) {
+                            if (!lines.endLine()) {
+                                return lines.statements;
+                            }
+                            continue;
+                        }
+                    }
+
+                    switch (b) {
+                        case '\n' -> {
+                            lines.markTerminator();
+                            if (!lines.endLine()) {
+                                return lines.statements;
+                            }
+                        }
+                        case '\r' -> {
+                            state = STATE_CR;
+                            lines.markTerminator();
+                            lines.append(b);
+                        }
+                        case (byte) 0xC2 -> {
+                            state = STATE_C2;
+                            lines.markTerminator();
+                            lines.append(b);
+                        }
+                        case (byte) 0xE2 -> {
+                            state = STATE_E2;
+                            lines.markTerminator();
+                            lines.append(b);
+                        }
+                        default -> lines.append(b);
+                    }
+                }
+
+                buffer.clear();
+            }
+
+            // A lone '\r' at the end of the file is a terminator on its own.
+            if (state == STATE_CR) {
+                if (!lines.endLine()) {
+                    return lines.statements;
+                }
+            }
+
+            lines.endFile();
+        }
+
+        return lines.statements;
+    }
+
+    /**
+     * Parses the rest of a 'require' statement (everything after "require ").
+     * A valid require statement is of the form "require ‘path/to/file’".
+     * Note that this method does not check the existence of the defined path.
+     * @param line The bytes of the statement's line.
+     * @param start The offset of the first byte after "require ".
+     * @param end The offset after the last byte of the line.
+     * @return The dependency's file path or error if the statement is invalid.
+     */
+    private static @NotNull ErrorOr<String> parseStatement(final byte @NotNull [] line,
+                                                           final int start,
+                                                           final int end) {
+        if (start == end) {
+            return ErrorOr.error("empty statement");
+        }
+
+        if (!startsWith(line, start, end, OPENING_QUOTE)) {
+            final var dependencyFormat = new String(line, start, end - start, StandardCharsets.UTF_8);
+            return ErrorOr.error("statement must start with '‘', but starts with '%s'", dependencyFormat.charAt(0));
+        }
+
+        if (!startsWith(line, end - CLOSING_QUOTE.length, end, CLOSING_QUOTE)) {
+            final var dependencyFormat = new String(line, start, end - start, StandardCharsets.UTF_8);
+            return ErrorOr.error("statement must end with '’', but ends with '%s'",
+                    dependencyFormat.charAt(dependencyFormat.length() - 1));
+        }
+
+        final int pathStart = start + OPENING_QUOTE.length;
+        final int pathEnd = end - CLOSING_QUOTE.length;
+        if (pathStart >= pathEnd) {
+            return ErrorOr.error("empty dependency filepath");
+        }
+
+        return ErrorOr.ok(new String(line, pathStart, pathEnd - pathStart, StandardCharsets.UTF_8));
+    }
+
+    private static boolean startsWith(final byte @NotNull [] bytes,
+                                      final int start,
+                                      final int end,
+                                      final byte @NotNull [] prefix) {
+        if (start < 0 || end - start < prefix.length) {
+            return false;
+        }
+
+        for (int i = 0; i < prefix.length; ++i) {
+            if (bytes[start + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The state of the line being scanned.
+     * Bytes are only kept for lines that start with "require ".
+     */
+    private class LineState {
+        private final ErrorListener errorListener;
+        private final List<RequireStatement> statements = new ArrayList<>();
+
+        private byte[] line = new byte[256];
+        private int lineNumber = 1;
+        private int length = 0;
+        private int terminatorStart = 0;
+        private int firstNonBlank = -1;
+        private boolean isPrefixMismatch = false;
+
+        LineState(final @NotNull ErrorListener errorListener) {
+            this.errorListener = errorListener;
+        }
+
+        void append(final byte b) {
+            if (firstNonBlank == -1 && b != ' ' && b != '\t' && b != '\r' && b != '\f' && b != 0x0B) {
+                firstNonBlank = length;
+            }
+
+            if (length < PREFIX.length) {
+                isPrefixMismatch |= b != PREFIX[length];
+            }
+
+            if (!isPrefixMismatch) {
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, line.length * 2);
+                }
+                line[length] = b;
+            }
+
+            length++;
+        }
+
+        /**
+         * Marks the current position as the possible start of a line terminator.
+         */
+        void markTerminator() {
+            terminatorStart = length;
+        }
+
+        /**
+         * Ends the current line, the terminator of which started at the last marked position.
+         * @return False if scanning should stop.
+         */
+        boolean endLine() {
+            final boolean shouldContinue = processLine(terminatorStart);
+            lineNumber++;
+            length = 0;
+            terminatorStart = 0;
+            firstNonBlank = -1;
+            isPrefixMismatch = false;
+            return shouldContinue;
+        }
+
+        /**
+         * Processes the last line if it was not terminated.
+         */
+        void endFile() {
+            if (length > 0) {
+                processLine(length);
+            }
+        }
+
+        private boolean processLine(final int contentLength) {
+            final boolean isRequire = !isPrefixMismatch && contentLength >= PREFIX.length;
+
+            if (isRequire) {
+                final var dependencyFilePath = parseStatement(line, PREFIX.length, contentLength);
+                if (dependencyFilePath.isError()) {
+                    errorListener.onError(lineNumber, dependencyFilePath.getError());
+                } else {
+                    statements.add(new RequireStatement(lineNumber, dependencyFilePath.getValue()));
+                }
+                return true;
+            }
+
+            final boolean isBlank = firstNonBlank == -1 || firstNonBlank >= contentLength;
+            return !isHeaderOnly || isBlank;
+        }
+    }
+}
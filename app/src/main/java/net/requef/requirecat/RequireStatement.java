@@ -0,0 +1,37 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A parsed 'require' statement: the required path and the line it was found on.
+ */
+public class RequireStatement {
+    private final int lineNumber;
+    private final String path;
+
+    /**
+     * Constructs a new require statement.
+     * @param lineNumber The 1-based number of the line the statement is on.
+     * @param path The required path, relative to the root directory.
+     */
+    public RequireStatement(final int lineNumber, final @NotNull String path) {
+        this.lineNumber = lineNumber;
+        this.path = path;
+    }
+
+    /**
+     * Returns the 1-based number of the line the statement is on.
+     * @return The line number.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Returns the required path, relative to the root directory.
+     * @return The required path.
+     */
+    public @NotNull String getPath() {
+        return path;
+    }
+}
@@ -0,0 +1,256 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sidecar index of the output file: where the content of every source file (a segment) starts in the output,
+ * how long it is and which size, modification time and content hash the source had when it was written.
+ * Lets the next run keep the unchanged prefix of the output and rewrite only its tail.
+ */
+public class SegmentIndex {
+    private static final String EXTENSION = ".idx";
+    private static final int MAGIC = 0x52435349; // "RCSI"
+    private static final int VERSION = 2;
+    private static final int HASH_LENGTH = 32; // SHA-256
+
+    private final List<Segment> segments;
+
+    /**
+     * Constructs a new index of the given segments.
+     * @param segments The segments in the order they appear in the output.
+     */
+    public SegmentIndex(final @NotNull List<Segment> segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * Returns the index file of the given output file.
+     * @param outputFile The output file.
+     * @return The index file next to the output file.
+     */
+    public static @NotNull File indexFileOf(final @NotNull File outputFile) {
+        return new File(outputFile.getPath() + EXTENSION);
+    }
+
+    /**
+     * Loads the index of the given output file.
+     * Returns null if there is no index, it can't be read, it is corrupt
+     * or the output was changed after the index was saved.
+     * @param outputFile The output file.
+     * @return The index or null.
+     */
+    public static @Nullable SegmentIndex load(final @NotNull File outputFile) {
+        final var indexFile = indexFileOf(outputFile);
+        if (!indexFile.isFile() || !outputFile.isFile()) {
+            return null;
+        }
+
+        try (final var input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return null;
+            }
+
+            final var outputAttributes = Files.readAttributes(outputFile.toPath(), BasicFileAttributes.class);
+            final long outputSize = outputAttributes.size();
+            if (input.readLong() != outputSize
+                    || input.readLong() != outputAttributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)) {
+                return null;
+            }
+
+            // Every segment takes more than a byte of the index, so a larger count means a corrupt index.
+            final int segmentCount = input.readInt();
+            if (segmentCount < 0 || segmentCount > indexFile.length()) {
+                return null;
+            }
+
+            final var segments = new ArrayList<Segment>(segmentCount);
+            for (int i = 0; i < segmentCount; ++i) {
+                final var segment = Segment.read(input);
+                if (segment.offset < 0 || segment.length < 0 || segment.length > outputSize - segment.offset) {
+                    return null;
+                }
+                segments.add(segment);
+            }
+            return new SegmentIndex(segments);
+        } catch (final IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Saves the index next to the given output file, which should be fully written by now.
+     * @param outputFile The output file.
+     * @throws IOException if the index can't be written.
+     */
+    public void save(final @NotNull File outputFile) throws IOException {
+        final var indexPath = indexFileOf(outputFile).toPath().toAbsolutePath();
+        final var temporaryPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        final var outputAttributes = Files.readAttributes(outputFile.toPath(), BasicFileAttributes.class);
+
+        try (final var output = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temporaryPath)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(outputAttributes.size());
+            output.writeLong(outputAttributes.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+            output.writeInt(segments.size());
+            for (final var segment : segments) {
+                segment.write(output);
+            }
+        }
+
+        Files.move(temporaryPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Finds the first segment that differs from the given sorted files.
+     * A segment differs if it belongs to another file or its file's content changed.
+     * Content is only hashed for the files whose size or modification time changed.
+     * @param sortedFiles The files that should make up the output.
+     * @return The number of leading segments that can be kept.
+     */
+    public int countUnchangedSegments(final @NotNull List<Path> sortedFiles) {
+        final int count = Math.min(segments.size(), sortedFiles.size());
+        for (int i = 0; i < count; ++i) {
+            if (!segments.get(i).matches(sortedFiles.get(i))) {
+                return i;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of segments.
+     * @return The number of segments.
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Returns the offset in the output where the given segment starts.
+     * The offset of the segment count is the size of the whole indexed output.
+     * @param segment The index of the segment.
+     * @return The offset of the segment.
+     */
+    public long getOffset(final int segment) {
+        if (segment == segments.size()) {
+            return segments.isEmpty() ? 0 : segments.get(segment - 1).offset + segments.get(segment - 1).length;
+        }
+        return segments.get(segment).offset;
+    }
+
+    /**
+     * Returns the first segments of the index.
+     * @param count The number of segments.
+     * @return The leading segments.
+     */
+    public @NotNull List<Segment> getSegments(final int count) {
+        return segments.subList(0, count);
+    }
+
+    /**
+     * The content of a single source file in the output.
+     */
+    public static class Segment {
+        private final String path;
+        private final long size;
+        private final long modifiedTime;
+        private final byte[] contentHash;
+        private long offset;
+        private long length;
+
+        private Segment(final @NotNull String path,
+                        final long size,
+                        final long modifiedTime,
+                        final byte @NotNull [] contentHash,
+                        final long offset,
+                        final long length) {
+            this.path = path;
+            this.size = size;
+            this.modifiedTime = modifiedTime;
+            this.contentHash = contentHash;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * Describes the given source file as it is now, before it is written.
+         * Describing it first means that a change made while it is written is noticed on the next run.
+         * @param file The source file.
+         * @return The new segment, its range should be set once the file is written.
+         * @throws IOException if the file can't be read.
+         */
+        public static @NotNull Segment of(final @NotNull Path file) throws IOException {
+            final var attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            // The URI tells a file on the disk from an entry of an archive with the same path.
+            return new Segment(file.toUri().toString(), attributes.size(),
+                    attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), ContentHash.of(file), 0, 0);
+        }
+
+        /**
+         * Sets the range of bytes the file took in the output.
+         * @param offset The offset of the segment.
+         * @param length The length of the segment.
+         */
+        public void setRange(final long offset, final long length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        private boolean matches(final @NotNull Path file) {
+            if (!path.equals(file.toUri().toString())) {
+                return false;
+            }
+
+            try {
+                final var attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attributes.size() != size) {
+                    return false;
+                }
+                if (attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS) == modifiedTime) {
+                    return true;
+                }
+                return Arrays.equals(ContentHash.of(file), contentHash);
+            } catch (final IOException e) {
+                return false;
+            }
+        }
+
+        private static @NotNull Segment read(final @NotNull DataInput input) throws IOException {
+            final var path = input.readUTF();
+            final long size = input.readLong();
+            final long modifiedTime = input.readLong();
+            final int hashLength = input.readInt();
+            if (hashLength != HASH_LENGTH) {
+                throw new IOException("Invalid content hash length " + hashLength + " in the segment index");
+            }
+            final var contentHash = new byte[hashLength];
+            input.readFully(contentHash);
+            final long offset = input.readLong();
+            final long length = input.readLong();
+            return new Segment(path, size, modifiedTime, contentHash, offset, length);
+        }
+
+        private void write(final @NotNull DataOutput output) throws IOException {
+            output.writeUTF(path);
+            output.writeLong(size);
+            output.writeLong(modifiedTime);
+            output.writeInt(contentHash.length);
+            output.write(contentHash);
+            output.writeLong(offset);
+            output.writeLong(length);
+        }
+    }
+}
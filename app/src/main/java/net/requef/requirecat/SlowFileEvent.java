@@ -0,0 +1,25 @@
+package net.requef.requirecat;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for a single file that took long to parse or to write.
+ * Only files slower than the threshold (10 ms by default, configurable in the recording settings) are recorded.
+ */
+@Name("net.requef.requirecat.SlowFile")
+@Label("RequireCat Slow File")
+@Category("RequireCat")
+@Description("A file that took long to parse or to write")
+@Threshold("10 ms")
+public class SlowFileEvent extends Event {
+    @Label("Path")
+    String path;
+
+    @Label("Operation")
+    String operation;
+}
@@ -0,0 +1,124 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Every problem of a root directory found in a single validation pass, see {@link RequireCatEngine#validate}:
+ * unreadable files, invalid 'require' statements, statements that can't be resolved and cycles.
+ * The diagnostics are sorted by file and line.
+ */
+public class ValidationReport {
+    private final int fileCount;
+    private final List<Diagnostic> diagnostics;
+
+    /**
+     * Constructs a new report.
+     * @param fileCount The number of validated files.
+     * @param diagnostics The problems found, in any order.
+     */
+    public ValidationReport(final int fileCount, final @NotNull Collection<Diagnostic> diagnostics) {
+        final var sortedDiagnostics = new ArrayList<>(diagnostics);
+        Collections.sort(sortedDiagnostics);
+        this.fileCount = fileCount;
+        this.diagnostics = Collections.unmodifiableList(sortedDiagnostics);
+    }
+
+    /**
+     * Returns whether no problems were found.
+     * @return True if the root directory can be built.
+     */
+    public boolean isValid() {
+        return diagnostics.isEmpty();
+    }
+
+    /**
+     * Returns the number of validated files.
+     * @return The number of files.
+     */
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * Returns the problems found, sorted by file and line.
+     * @return The diagnostics.
+     */
+    public @NotNull List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Writes the report to the given file.
+     * @param file The file to write the report to.
+     * @throws IOException if the file can't be written.
+     */
+    public void writeJson(final @NotNull File file) throws IOException {
+        Files.writeString(file.toPath(), toJson(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Formats the report as a JSON object.
+     * @return The report.
+     */
+    public @NotNull String toJson() {
+        final var json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"valid\": ").append(isValid()).append(",\n");
+        json.append("  \"files\": ").append(fileCount).append(",\n");
+        json.append("  \"diagnostics\": [");
+
+        for (int i = 0; i < diagnostics.size(); ++i) {
+            final var diagnostic = diagnostics.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\"kind\": \"").append(diagnostic.getKind()).append('"');
+            json.append(", \"file\": ").append(quote(diagnostic.getPath()));
+            json.append(", \"line\": ").append(diagnostic.getLineNumber());
+            json.append(", \"message\": ").append(quote(diagnostic.getMessage()));
+
+            final var cycle = diagnostic.getCycle();
+            if (cycle != null) {
+                json.append(", \"cycle\": [");
+                for (int j = 0; j < cycle.size(); ++j) {
+                    json.append(j == 0 ? "" : ", ").append(quote(cycle.get(j)));
+                }
+                json.append(']');
+            }
+            json.append('}');
+        }
+
+        json.append(diagnostics.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+        return json.toString();
+    }
+
+    private static @NotNull String quote(final @NotNull String value) {
+        final var quoted = new StringBuilder(value.length() + 2);
+        quoted.append('"');
+        for (int i = 0; i < value.length(); ++i) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,160 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DependencyCacheTest {
+    @TempDir
+    Path temporaryDirectory;
+
+    private final AtomicInteger parseCount = new AtomicInteger();
+    private final List<String> reportedErrors = new ArrayList<>();
+
+    @Test
+    void servesUnchangedFileFromCache() throws IOException {
+        final var file = write("a.txt", "require ‘b.txt’\n");
+
+        assertEquals(List.of("1:b.txt"), getOrParse(load(false, false), file));
+        assertEquals(List.of("1:b.txt"), getOrParse(load(false, false), file));
+        assertEquals(1, parseCount.get());
+    }
+
+    @Test
+    void parsesChangedFileAgain() throws IOException {
+        final var file = write("a.txt", "require ‘b.txt’\n");
+        getOrParse(load(false, false), file);
+
+        write("a.txt", "require ‘c.txt’\n");
+        touch(file, 1);
+
+        assertEquals(List.of("1:c.txt"), getOrParse(load(false, false), file));
+        assertEquals(2, parseCount.get());
+    }
+
+    @Test
+    void servesTouchedFileByContentHash() throws IOException {
+        final var file = write("a.txt", "require ‘b.txt’\n");
+        getOrParse(load(true, false), file);
+
+        touch(file, 1);
+
+        assertEquals(List.of("1:b.txt"), getOrParse(load(true, false), file));
+        assertEquals(1, parseCount.get());
+    }
+
+    @Test
+    void reportsInvalidStatementsOfCachedFile() throws IOException {
+        final var file = write("a.txt", "require b.txt\nrequire ‘c.txt’\n");
+        getOrParse(load(false, false), file);
+        final var errors = List.copyOf(reportedErrors);
+        reportedErrors.clear();
+
+        assertEquals(List.of("2:c.txt"), getOrParse(load(false, false), file));
+        assertEquals(1, parseCount.get());
+        assertEquals(1, errors.size());
+        assertEquals(errors, reportedErrors);
+    }
+
+    @Test
+    void discardsCacheOfOtherHeaderOnlyMode() throws IOException {
+        final var file = write("a.txt", "require ‘b.txt’\n");
+        getOrParse(load(false, true), file);
+
+        getOrParse(load(false, false), file);
+        assertEquals(2, parseCount.get());
+    }
+
+    @Test
+    void treatsCorruptCacheAsEmpty() throws IOException {
+        final var file = write("a.txt", "require ‘b.txt’\n");
+        getOrParse(load(false, false), file);
+
+        final var cacheFile = temporaryDirectory.resolve("cache.bin");
+        final var content = Files.readAllBytes(cacheFile);
+        // The header, the entry count, the path, the size, the modification time and the hash length
+        // come before the statement count of the only entry.
+        ByteBuffer.wrap(content).putInt(4 + 4 + 1 + 4 + 2 + "a.txt".length() + 8 + 8 + 4, Integer.MAX_VALUE);
+        Files.write(cacheFile, content);
+        assertEquals(List.of("1:b.txt"), getOrParse(load(false, false), file));
+
+        Files.write(cacheFile, Arrays.copyOf(content, 6));
+        assertEquals(List.of("1:b.txt"), getOrParse(load(false, false), file));
+        assertEquals(3, parseCount.get());
+    }
+
+    @Test
+    void doesNotCacheFileChangedWhileParsed() throws IOException {
+        final var file = write("a.txt", "require ‘b.txt’\n");
+
+        final var cache = load(true, false);
+        cache.getOrParse(file, (path, errorListener) -> {
+            final var statements = parse(path, errorListener);
+            try {
+                write("a.txt", "require ‘c.txt’\n");
+                touch(path, 1);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return statements;
+        }, (lineNumber, error) -> { });
+        cache.save();
+
+        assertEquals(List.of("1:c.txt"), getOrParse(load(true, false), file));
+        assertEquals(2, parseCount.get());
+    }
+
+    private @NotNull DependencyCache load(final boolean useContentHash, final boolean isHeaderOnly) {
+        return DependencyCache.load(temporaryDirectory.resolve("cache.bin").toFile(), temporaryDirectory,
+                useContentHash, isHeaderOnly);
+    }
+
+    private @NotNull List<String> getOrParse(final @NotNull DependencyCache cache,
+                                             final @NotNull Path file) throws IOException {
+        final var statements = cache.getOrParse(file, this::parse,
+                (lineNumber, error) -> reportedErrors.add(lineNumber + ":" + error));
+        cache.save();
+        return toStrings(statements);
+    }
+
+    private @Nullable List<RequireStatement> parse(final @NotNull Path file,
+                                                   final @NotNull RequireScanner.ErrorListener errorListener) {
+        parseCount.incrementAndGet();
+        try {
+            return new RequireScanner(false).scan(file, errorListener);
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+
+    private @NotNull Path write(final @NotNull String name, final @NotNull String content) throws IOException {
+        return Files.writeString(temporaryDirectory.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    private static void touch(final @NotNull Path file, final long seconds) throws IOException {
+        final var modifiedTime = Files.getLastModifiedTime(file).toMillis();
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedTime + seconds * 1000));
+    }
+
+    private static @NotNull List<String> toStrings(final @Nullable List<RequireStatement> statements) {
+        assert statements != null;
+        return statements.stream()
+                .map(statement -> statement.getLineNumber() + ":" + statement.getPath())
+                .toList();
+    }
+}
@@ -0,0 +1,147 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class DirectoryWatcherTest {
+    private static final long TIMEOUT_SECONDS = 30;
+
+    @TempDir
+    Path root;
+
+    private final BlockingQueue<Map<Path, List<RequireStatement>>> rebuilds = new LinkedBlockingQueue<>();
+
+    @Test
+    void parsesChangedFilesAgain() throws Exception {
+        final var a = write("a.txt", "A\n");
+        final var b = write("b.txt", "require ‘a.txt’\nB\n");
+
+        final var watcher = start(Set.of(), IgnoreRules.none());
+        try {
+            write("a.txt", "require ‘b.txt’\nA\n");
+            final var files = awaitRebuild(rebuild -> rebuild.get(a).size() == 1);
+            assertEquals("b.txt", files.get(a).get(0).getPath());
+            assertEquals("a.txt", files.get(b).get(0).getPath());
+        } finally {
+            stop(watcher);
+        }
+    }
+
+    @Test
+    void tracksNewAndDeletedFiles() throws Exception {
+        final var a = write("a.txt", "A\n");
+
+        final var watcher = start(Set.of(), IgnoreRules.none());
+        try {
+            final var c = write("directory/c.txt", "require ‘a.txt’\n");
+            assertEquals(Set.of(a, c), awaitRebuild(rebuild -> rebuild.containsKey(c)).keySet());
+
+            Files.delete(a);
+            assertEquals(Set.of(c), awaitRebuild(rebuild -> !rebuild.containsKey(a)).keySet());
+        } finally {
+            stop(watcher);
+        }
+    }
+
+    @Test
+    void skipsIgnoredFiles() throws Exception {
+        final var output = root.resolve("out.txt");
+        final var a = write("a.txt", "A\n");
+
+        final var watcher = start(Set.of(output), IgnoreRules.compile(List.of("*.log")).getValue());
+        try {
+            write("out.txt", "require ‘a.txt’\n");
+            write("debug.log", "require ‘a.txt’\n");
+            final var b = write("b.txt", "B\n");
+
+            final var files = awaitRebuild(rebuild -> rebuild.containsKey(b));
+            assertEquals(Set.of(a, b), files.keySet());
+        } finally {
+            stop(watcher);
+        }
+    }
+
+    private @NotNull Path write(final @NotNull String name, final @NotNull String content) throws IOException {
+        final var file = root.resolve(name);
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Starts watching the root directory on a new thread, with the files in it parsed beforehand.
+     */
+    private @NotNull Thread start(final @NotNull Set<Path> ignoredFiles,
+                                  final @NotNull IgnoreRules ignoreRules) throws Exception {
+        final var scanner = new RequireScanner(false);
+        final var parsedFiles = new HashMap<Path, List<RequireStatement>>();
+        try (final var paths = Files.walk(root)) {
+            for (final var path : paths.filter(Files::isRegularFile).toList()) {
+                parsedFiles.put(path, scanner.scan(path, (lineNumber, error) -> { }));
+            }
+        }
+
+        final var watcher = new DirectoryWatcher(root, ignoredFiles, ignoreRules, file -> parse(scanner, file),
+                files -> rebuilds.add(Map.copyOf(files)));
+        final var thread = new Thread(() -> {
+            try {
+                watcher.watch(parsedFiles);
+            } catch (final IOException | InterruptedException ignored) {
+                // Stopped by the test.
+            }
+        });
+        thread.start();
+
+        // The watcher registers the directories right after it starts, give it a moment to do so.
+        Thread.sleep(500);
+        return thread;
+    }
+
+    private static void stop(final @NotNull Thread watcher) throws InterruptedException {
+        watcher.interrupt();
+        watcher.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        assertFalse(watcher.isAlive());
+    }
+
+    /**
+     * Waits for a rebuild that satisfies the condition, skipping the ones of earlier events in a burst.
+     */
+    private @NotNull Map<Path, List<RequireStatement>> awaitRebuild(
+            final @NotNull Predicate<Map<Path, List<RequireStatement>>> condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (true) {
+            final var rebuild = rebuilds.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            assertNotNull(rebuild);
+            if (condition.test(rebuild)) {
+                return rebuild;
+            }
+        }
+    }
+
+    private static @Nullable List<RequireStatement> parse(final @NotNull RequireScanner scanner,
+                                                          final @NotNull Path file) {
+        try {
+            return scanner.scan(file, (lineNumber, error) -> { });
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+}
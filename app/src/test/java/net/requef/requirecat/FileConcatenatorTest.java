@@ -0,0 +1,97 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileConcatenatorTest {
+    @TempDir
+    Path temporaryDirectory;
+
+    @Test
+    void writesSampleFilesLikeScanner() throws IOException, URISyntaxException {
+        final var root = RequireScannerTest.resource("sample-root-1");
+        final var files = List.of(root.resolve("Folder 2/File 2-1"), root.resolve("Folder 1/File 1-1"),
+                root.resolve("Folder 2/File 2-2"));
+
+        assertArrayEquals(concatenateWithScanner(files), concatenate(files, 0));
+    }
+
+    @Test
+    void normalizesLineTerminatorsLikeScanner() throws IOException {
+        final var files = new ArrayList<Path>();
+        files.add(write("crlf.txt", "first\r\nsecond\r\n"));
+        files.add(write("cr.txt", "first\rsecond\r"));
+        files.add(write("unicode.txt", "first\u0085second\u2028third\u2029"));
+        files.add(write("mixed.txt", "first\r\n\rsecond\n\r\nthird"));
+        files.add(write("empty.txt", ""));
+        files.add(write("unterminated.txt", "last line"));
+        files.add(write("non-terminators.txt", "\u00a0\u00a9 \u2022\u2019\u20ac\n"));
+
+        final var expected = concatenateWithScanner(files);
+        assertArrayEquals(expected, concatenate(files, 0));
+        assertArrayEquals(expected, concatenate(files, 1024 * 1024));
+    }
+
+    @Test
+    void readsAheadInOrderWithSmallBudget() throws IOException {
+        // Some files fit the budget only one at a time and some don't fit at all, so they are streamed.
+        final int budget = 1000;
+        final var files = new ArrayList<Path>();
+        final var indices = new ArrayList<Integer>();
+        for (int i = 0; i < 200; ++i) {
+            indices.add(i);
+            final var line = "file " + i + (i % 3 == 0 ? "\r\n" : "\n");
+            files.add(write("file-" + i + ".txt", line.repeat(i * 7 % 300)));
+        }
+
+        final var writtenIndices = new ArrayList<Integer>();
+        final var output = new ByteArrayOutputStream();
+        FileConcatenator.concatenate(files, Channels.newChannel(output), budget, writtenIndices::add);
+
+        assertArrayEquals(concatenate(files, 0), output.toByteArray());
+        assertArrayEquals(concatenateWithScanner(files), output.toByteArray());
+        assertEquals(indices, writtenIndices);
+    }
+
+    private @NotNull Path write(final @NotNull String name, final @NotNull String content) throws IOException {
+        return Files.writeString(temporaryDirectory.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    private static byte @NotNull [] concatenate(final @NotNull List<Path> files,
+                                               final long readAheadBytes) throws IOException {
+        final var output = new ByteArrayOutputStream();
+        FileConcatenator.concatenate(files, Channels.newChannel(output), readAheadBytes);
+        return output.toByteArray();
+    }
+
+    /**
+     * Writes the files the way the original line-based writer did, with {@link Scanner#nextLine()}.
+     */
+    private static byte @NotNull [] concatenateWithScanner(final @NotNull List<Path> files) throws IOException {
+        final var output = new StringBuilder();
+        for (final var file : files) {
+            try (final var scanner = new Scanner(file, StandardCharsets.UTF_8)) {
+                while (scanner.hasNextLine()) {
+                    output.append(scanner.nextLine());
+                    output.append(System.lineSeparator());
+                }
+            }
+        }
+        return output.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,106 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IgnoreRulesTest {
+    @Test
+    void matchesNamesAtAnyDepth() {
+        final var rules = compile("build", "*.log", "?.tmp");
+
+        assertTrue(rules.isIgnored("build", true));
+        assertTrue(rules.isIgnored("a/b/build", false));
+        assertFalse(rules.isIgnored("builds", true));
+        assertTrue(rules.isIgnored("a/debug.log", false));
+        assertFalse(rules.isIgnored("debug.log.txt", false));
+        assertTrue(rules.isIgnored("a/x.tmp", false));
+        assertFalse(rules.isIgnored("xy.tmp", false));
+    }
+
+    @Test
+    void anchorsPatternsWithSlash() {
+        final var rules = compile("/root.txt", "docs/*.md");
+
+        assertTrue(rules.isIgnored("root.txt", false));
+        assertFalse(rules.isIgnored("a/root.txt", false));
+        assertTrue(rules.isIgnored("docs/readme.md", false));
+        assertFalse(rules.isIgnored("a/docs/readme.md", false));
+        // '*' doesn't cross directories.
+        assertFalse(rules.isIgnored("docs/a/readme.md", false));
+    }
+
+    @Test
+    void matchesAnyNumberOfDirectoriesWithDoubleStar() {
+        final var rules = compile("**/generated", "src/**/*.bak", "vendor/**");
+
+        assertTrue(rules.isIgnored("generated", true));
+        assertTrue(rules.isIgnored("a/b/generated", true));
+        assertTrue(rules.isIgnored("src/a.bak", false));
+        assertTrue(rules.isIgnored("src/a/b/c.bak", false));
+        assertFalse(rules.isIgnored("lib/src/a.bak", false));
+        assertTrue(rules.isIgnored("vendor/a/b.txt", false));
+        assertFalse(rules.isIgnored("vendor", true));
+    }
+
+    @Test
+    void matchesDirectoriesOnlyWithTrailingSlash() {
+        final var rules = compile("cache/");
+
+        assertTrue(rules.isIgnored("a/cache", true));
+        assertFalse(rules.isIgnored("a/cache", false));
+        assertTrue(rules.isFileIgnored("a/cache/file.txt"));
+    }
+
+    @Test
+    void reIncludesWithNegation() {
+        final var rules = compile("*.txt", "!keep.txt", "logs/", "!logs/important.txt");
+
+        assertTrue(rules.isIgnored("a.txt", false));
+        assertFalse(rules.isIgnored("a/keep.txt", false));
+        // The last matching pattern wins.
+        assertTrue(compile("!keep.txt", "*.txt").isIgnored("keep.txt", false));
+        // A file inside an excluded directory can't be re-included.
+        assertTrue(rules.isFileIgnored("logs/important.txt"));
+    }
+
+    @Test
+    void matchesCharacterClasses() {
+        final var rules = compile("file[0-9].txt", "[!a-c]*.md");
+
+        assertTrue(rules.isIgnored("file7.txt", false));
+        assertFalse(rules.isIgnored("fileA.txt", false));
+        assertTrue(rules.isIgnored("readme.md", false));
+        assertFalse(rules.isIgnored("about.md", false));
+    }
+
+    @Test
+    void skipsCommentsBlankLinesAndEscapes() {
+        final var rules = compile("# comment", "", "   ", "\\#hash", "\\!bang", "a\\*");
+
+        assertFalse(rules.isEmpty());
+        assertFalse(rules.isIgnored("# comment", false));
+        assertTrue(rules.isIgnored("#hash", false));
+        assertTrue(rules.isIgnored("!bang", false));
+        assertTrue(rules.isIgnored("a*", false));
+        assertFalse(rules.isIgnored("ab", false));
+        assertTrue(compile("# only a comment", "").isEmpty());
+    }
+
+    @Test
+    void rejectsMalformedPatterns() {
+        assertTrue(IgnoreRules.compile(List.of("*.txt", "[z-a]")).isError());
+        // A bracket without its pair is matched literally, as in git.
+        assertTrue(compile("[unclosed").isIgnored("[unclosed", false));
+    }
+
+    private static @NotNull IgnoreRules compile(final @NotNull String... patterns) {
+        final var rules = IgnoreRules.compile(List.of(patterns));
+        assertFalse(rules.isError());
+        return rules.getValue();
+    }
+}
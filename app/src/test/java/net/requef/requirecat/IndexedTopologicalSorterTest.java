@@ -0,0 +1,200 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexedTopologicalSorterTest {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Test
+    void sortsDependenciesFirstAndSmallestIdNext() {
+        // 0 requires 2, 2 requires 1, 1 and 3 require nothing.
+        final var sorter = sorterOf(new int[][] {{2}, {}, {1}, {}});
+
+        assertArrayEquals(new int[] {1, 2, 0, 3}, sorter.sort());
+        assertNull(sorter.getCycles());
+    }
+
+    @Test
+    void groupsNodesIntoLevels() {
+        final var sorter = sorterOf(new int[][] {{2}, {}, {1}, {}});
+
+        final var levels = sorter.sortLevels();
+        assertNotNull(levels);
+        assertEquals(3, levels.length);
+        assertArrayEquals(new int[] {1, 3}, levels[0]);
+        assertArrayEquals(new int[] {2}, levels[1]);
+        assertArrayEquals(new int[] {0}, levels[2]);
+    }
+
+    @Test
+    void runsEveryNodeOnceAfterItsDependencies() throws Exception {
+        // A random graph in which every node requires a few nodes with smaller ids.
+        final int nodeCount = 2000;
+        final var random = new Random(42);
+        final var dependencies = new int[nodeCount][];
+        for (int node = 0; node < nodeCount; ++node) {
+            dependencies[node] = random.ints(Math.min(node, random.nextInt(4)), 0, Math.max(node, 1))
+                    .distinct().toArray();
+        }
+
+        final var runCounts = new AtomicIntegerArray(nodeCount);
+        final var isOrderViolated = new AtomicBoolean();
+        final var executor = Executors.newFixedThreadPool(8);
+        try {
+            sorterOf(dependencies).run(node -> {
+                for (final int dependency : dependencies[node]) {
+                    if (runCounts.get(dependency) == 0) {
+                        isOrderViolated.set(true);
+                    }
+                }
+                runCounts.incrementAndGet(node);
+            }, executor).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertFalse(isOrderViolated.get());
+        for (int node = 0; node < nodeCount; ++node) {
+            assertEquals(1, runCounts.get(node));
+        }
+    }
+
+    @Test
+    void runsNothingOnCyclicGraph() {
+        final var runCount = new AtomicInteger();
+        final var executor = Executors.newFixedThreadPool(4);
+        try {
+            final var sorter = sorterOf(new int[][] {{}, {0, 2}, {1}});
+            final var result = sorter.run(node -> runCount.incrementAndGet(), executor);
+
+            final var exception = assertThrows(ExecutionException.class,
+                    () -> result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            assertTrue(exception.getCause() instanceof IllegalStateException);
+            assertNotNull(sorter.getCycles());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, runCount.get());
+    }
+
+    @Test
+    void stopsRunningAfterFailedAction() {
+        // A chain: every node requires the previous one, so nothing after the failed node may run.
+        final var dependencies = new int[100][];
+        dependencies[0] = new int[0];
+        for (int node = 1; node < dependencies.length; ++node) {
+            dependencies[node] = new int[] {node - 1};
+        }
+
+        final var lastNode = new AtomicInteger(-1);
+        final var executor = Executors.newFixedThreadPool(4);
+        try {
+            final var result = sorterOf(dependencies).run(node -> {
+                if (node == 50) {
+                    throw new IllegalArgumentException("node 50");
+                }
+                lastNode.set(node);
+            }, executor);
+
+            final var exception = assertThrows(ExecutionException.class,
+                    () -> result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            assertTrue(exception.getCause() instanceof IllegalArgumentException);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(49, lastNode.get());
+    }
+
+    @Test
+    void reportsCycleInRequireOrder() {
+        // The graph of root-circular-dependency-2: a -> b -> c -> e -> b, and e -> d.
+        final var dependencies = new int[][] {{1}, {2}, {4}, {}, {3, 1}};
+        final var sorter = sorterOf(dependencies);
+
+        assertNull(sorter.sort());
+        final var cycles = sorter.getCycles();
+        assertNotNull(cycles);
+        assertEquals(1, cycles.size());
+        assertArrayEquals(new int[] {1, 2, 4}, cycles.get(0));
+        assertRequiresNext(dependencies, cycles.get(0));
+    }
+
+    @Test
+    void reportsEveryCycle() {
+        // 0 requires itself, 1 and 2 require each other, 3 requires both cycles.
+        final var dependencies = new int[][] {{0}, {2}, {1}, {0, 1}};
+        final var sorter = sorterOf(dependencies);
+
+        assertNull(sorter.sort());
+        final var cycles = sorter.getCycles();
+        assertNotNull(cycles);
+        assertEquals(2, cycles.size());
+        for (final var cycle : cycles) {
+            assertRequiresNext(dependencies, cycle);
+        }
+    }
+
+    @Test
+    void reportsCycleOfEveryComponentInLargeGraph() {
+        // 1000 components: 3k -> 3k + 1 -> 3k + 2 -> 3k + 1, with 3k outside the cycle, each requiring the last one.
+        final int componentCount = 1000;
+        final var dependencies = new int[componentCount * 3][];
+        for (int k = 0; k < componentCount; ++k) {
+            dependencies[3 * k] = new int[] {3 * k + 1};
+            dependencies[3 * k + 1] = new int[] {3 * k + 2};
+            dependencies[3 * k + 2] = k == 0 ? new int[] {1} : new int[] {3 * k + 1, 3 * k - 1};
+        }
+        final var sorter = sorterOf(dependencies);
+
+        assertNull(sorter.sort());
+        final var cycles = sorter.getCycles();
+        assertNotNull(cycles);
+        assertEquals(componentCount, cycles.size());
+        for (final var cycle : cycles) {
+            assertEquals(2, cycle.length);
+            assertEquals(cycle[0] / 3, cycle[1] / 3);
+            assertRequiresNext(dependencies, cycle);
+        }
+    }
+
+    private static @NotNull IndexedTopologicalSorter sorterOf(final int @NotNull [] @NotNull [] dependencies) {
+        final var offsets = new int[dependencies.length + 1];
+        for (int node = 0; node < dependencies.length; ++node) {
+            offsets[node + 1] = offsets[node] + dependencies[node].length;
+        }
+
+        final var flatDependencies = new int[offsets[dependencies.length]];
+        for (int node = 0; node < dependencies.length; ++node) {
+            System.arraycopy(dependencies[node], 0, flatDependencies, offsets[node], dependencies[node].length);
+        }
+        return new IndexedTopologicalSorter(dependencies.length, offsets, flatDependencies);
+    }
+
+    private static void assertRequiresNext(final int @NotNull [] @NotNull [] dependencies, final int @NotNull [] cycle) {
+        for (int i = 0; i < cycle.length; ++i) {
+            final int next = cycle[(i + 1) % cycle.length];
+            boolean isRequired = false;
+            for (final int dependency : dependencies[cycle[i]]) {
+                isRequired |= dependency == next;
+            }
+            assertTrue(isRequired);
+        }
+    }
+}
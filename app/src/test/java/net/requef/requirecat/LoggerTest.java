@@ -0,0 +1,87 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class LoggerTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    @Test
+    void printsMessagesInOrderOnFlush() {
+        final var logger = newLogger();
+        // More messages than the ring buffer holds, so logging has to wait for the flusher.
+        for (int i = 0; i < 5000; ++i) {
+            logger.info("message %d", i);
+        }
+
+        assertTimeoutPreemptively(TIMEOUT, logger::flush);
+        final var lines = lines();
+        assertEquals(5000, lines.size());
+        for (int i = 0; i < lines.size(); ++i) {
+            assertEquals(LogLevel.INFO.getPrefix() + "message " + i, lines.get(i));
+        }
+        logger.close();
+    }
+
+    @Test
+    void dropsMessagesBelowLogLevel() {
+        final var logger = newLogger();
+        logger.setLogLevel(LogLevel.WARN);
+        logger.info("info");
+        logger.success("success");
+        logger.warn("warning");
+        logger.error("error");
+
+        assertTimeoutPreemptively(TIMEOUT, logger::close);
+        assertEquals(List.of(LogLevel.WARN.getPrefix() + "warning", LogLevel.ERROR.getPrefix() + "error"), lines());
+    }
+
+    @Test
+    void printsUnformattedMessageIfFormattingFails() {
+        final var logger = newLogger();
+        final var brokenArgument = new Object() {
+            @Override
+            public String toString() {
+                throw new IllegalStateException("broken");
+            }
+        };
+        logger.warn("broken %s", brokenArgument);
+        logger.warn("malformed %d", "not a number");
+        logger.info("after %s", "them");
+
+        assertTimeoutPreemptively(TIMEOUT, logger::flush);
+        assertEquals(List.of(LogLevel.WARN.getPrefix() + "broken %s", LogLevel.WARN.getPrefix() + "malformed %d",
+                LogLevel.INFO.getPrefix() + "after them"), lines());
+        assertTimeoutPreemptively(TIMEOUT, logger::close);
+    }
+
+    @Test
+    void dropsMessagesAfterClose() {
+        final var logger = newLogger();
+        logger.info("before");
+        assertTimeoutPreemptively(TIMEOUT, logger::close);
+        logger.info("after");
+
+        assertEquals(List.of(LogLevel.INFO.getPrefix() + "before"), lines());
+    }
+
+    private @NotNull Logger newLogger() {
+        return new Logger(new PrintStream(output, true, StandardCharsets.UTF_8));
+    }
+
+    private @NotNull List<String> lines() {
+        final var text = output.toString(StandardCharsets.UTF_8);
+        return text.isEmpty() ? List.of() : List.of(text.split(System.lineSeparator()));
+    }
+}
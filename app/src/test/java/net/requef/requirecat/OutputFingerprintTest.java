@@ -0,0 +1,110 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutputFingerprintTest {
+    @TempDir
+    Path temporaryDirectory;
+
+    @Test
+    void matchesOutputOfSameFiles() throws IOException {
+        final var files = List.of(write("a.txt", "A\n"), write("b.txt", "B\n"));
+        final var outputFile = writeOutput(OutputFingerprint.of(files, "plain", false));
+
+        assertTrue(OutputFingerprint.of(files, "plain", false).matches(outputFile));
+    }
+
+    @Test
+    void differsForOtherFilesOrSettings() throws IOException {
+        final var a = write("a.txt", "A\n");
+        final var b = write("b.txt", "B\n");
+        final var outputFile = writeOutput(OutputFingerprint.of(List.of(a, b), "plain", false));
+
+        assertFalse(OutputFingerprint.of(List.of(b, a), "plain", false).matches(outputFile));
+        assertFalse(OutputFingerprint.of(List.of(a), "plain", false).matches(outputFile));
+        assertFalse(OutputFingerprint.of(List.of(a, b, write("c.txt", "C\n")), "plain", false).matches(outputFile));
+        assertFalse(OutputFingerprint.of(List.of(a, b), "gzip", false).matches(outputFile));
+
+        write("b.txt", "BB\n");
+        assertFalse(OutputFingerprint.of(List.of(a, b), "plain", false).matches(outputFile));
+    }
+
+    @Test
+    void noticesContentChangeOnlyWithContentHash() throws IOException {
+        final var a = write("a.txt", "A\n");
+        final var hashOutputFile = writeOutput(OutputFingerprint.of(List.of(a), "plain", true));
+        final var plainOutputFile = writeOutput(OutputFingerprint.of(List.of(a), "plain", false));
+
+        // Same size and modification time, different content.
+        final var modifiedTime = Files.getLastModifiedTime(a);
+        write("a.txt", "Z\n");
+        Files.setLastModifiedTime(a, modifiedTime);
+
+        assertFalse(OutputFingerprint.of(List.of(a), "plain", true).matches(hashOutputFile));
+        assertTrue(OutputFingerprint.of(List.of(a), "plain", false).matches(plainOutputFile));
+    }
+
+    @Test
+    void doesNotMatchChangedOutput() throws IOException {
+        final var files = List.of(write("a.txt", "A\n"));
+        final var fingerprint = OutputFingerprint.of(files, "plain", false);
+        final var outputFile = writeOutput(fingerprint);
+
+        Files.writeString(outputFile.toPath(), "edited by hand\n", StandardCharsets.UTF_8);
+
+        assertFalse(fingerprint.matches(outputFile));
+    }
+
+    @Test
+    void doesNotMatchCorruptFingerprint() throws IOException {
+        final var files = List.of(write("a.txt", "A\n"));
+        final var fingerprint = OutputFingerprint.of(files, "plain", false);
+        final var outputFile = writeOutput(fingerprint);
+        final var fingerprintFile = OutputFingerprint.fingerprintFileOf(outputFile);
+        final var original = Files.readAllBytes(fingerprintFile.toPath());
+        // Magic, version, output size and output modification time come before the hash length.
+        final int hashLengthOffset = 4 + 4 + 8 + 8;
+
+        try (final var output = new RandomAccessFile(fingerprintFile, "rw")) {
+            output.seek(hashLengthOffset);
+            output.writeInt(Integer.MAX_VALUE);
+        }
+        assertFalse(fingerprint.matches(outputFile));
+
+        Files.write(fingerprintFile.toPath(), original);
+        try (final var output = new RandomAccessFile(fingerprintFile, "rw")) {
+            output.setLength(original.length - 1);
+        }
+        assertFalse(fingerprint.matches(outputFile));
+
+        Files.write(fingerprintFile.toPath(), original);
+        assertTrue(fingerprint.matches(outputFile));
+    }
+
+    private @NotNull Path write(final @NotNull String name, final @NotNull String content) throws IOException {
+        return Files.writeString(temporaryDirectory.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes an output file and saves the fingerprint next to it.
+     */
+    private @NotNull File writeOutput(final @NotNull OutputFingerprint fingerprint) throws IOException {
+        final var outputFile = Files.createTempFile(temporaryDirectory, "out", ".txt").toFile();
+        Files.writeString(outputFile.toPath(), "output\n", StandardCharsets.UTF_8);
+        fingerprint.save(outputFile);
+        return outputFile;
+    }
+}
@@ -0,0 +1,132 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelGzipChannelTest {
+    private static final int BLOCK_SIZE = 1024 * 1024;
+    private static final int HEADER_SIZE = 10;
+
+    @Test
+    void roundTripsThroughGzipInputStream() throws IOException, DataFormatException {
+        // Partly random, partly repetitive, so some blocks compress well and some don't.
+        final var data = new byte[3 * BLOCK_SIZE + 12345];
+        new Random(42).nextBytes(data);
+        Arrays.fill(data, BLOCK_SIZE / 2, 2 * BLOCK_SIZE, (byte) 'x');
+
+        final var compressed = compress(data, 7777);
+
+        assertArrayEquals(data, decompress(compressed));
+        assertEquals(4, countMembers(compressed, data));
+    }
+
+    @Test
+    void writesValidStreamForEmptyInput() throws IOException, DataFormatException {
+        final var compressed = compress(new byte[0], 1);
+
+        assertArrayEquals(new byte[0], decompress(compressed));
+        assertEquals(1, countMembers(compressed, new byte[0]));
+    }
+
+    @Test
+    void writesNoEmptyMemberAfterFullBlocks() throws IOException, DataFormatException {
+        final var data = new byte[2 * BLOCK_SIZE];
+        new Random(7).nextBytes(data);
+
+        final var compressed = compress(data, BLOCK_SIZE);
+
+        assertArrayEquals(data, decompress(compressed));
+        assertEquals(2, countMembers(compressed, data));
+    }
+
+    @Test
+    void rejectsWritesAfterFinish() throws IOException {
+        final var channel = new ParallelGzipChannel(Channels.newChannel(new ByteArrayOutputStream()));
+        channel.finish();
+
+        assertThrows(ClosedChannelException.class, () -> channel.write(ByteBuffer.wrap(new byte[1])));
+    }
+
+    /**
+     * Writes the data into a new channel in chunks of the given size.
+     */
+    private static byte @NotNull [] compress(final byte @NotNull [] data, final int chunkSize) throws IOException {
+        final var output = new ByteArrayOutputStream();
+        try (final var channel = new ParallelGzipChannel(Channels.newChannel(output))) {
+            for (int start = 0; start < data.length; start += chunkSize) {
+                channel.write(ByteBuffer.wrap(data, start, Math.min(chunkSize, data.length - start)));
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private static byte @NotNull [] decompress(final byte @NotNull [] compressed) throws IOException {
+        try (final var input = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return input.readAllBytes();
+        }
+    }
+
+    /**
+     * Splits the stream into its members, checking the checksum and size of every member against the data.
+     * @return The number of members.
+     */
+    private static int countMembers(final byte @NotNull [] compressed,
+                                    final byte @NotNull [] data) throws DataFormatException {
+        final var stream = ByteBuffer.wrap(compressed).order(ByteOrder.LITTLE_ENDIAN);
+        // One spare byte, so a member larger than a block is noticed.
+        final var member = new byte[BLOCK_SIZE + 1];
+        int memberCount = 0;
+        int dataOffset = 0;
+
+        while (stream.hasRemaining()) {
+            assertEquals(0x1f, stream.get() & 0xff);
+            assertEquals(0x8b, stream.get() & 0xff);
+            stream.position(stream.position() + HEADER_SIZE - 2);
+
+            final var inflater = new Inflater(true);
+            inflater.setInput(compressed, stream.position(), stream.remaining());
+            int length = 0;
+            while (!inflater.finished()) {
+                // A member can't end before the stream does.
+                assertFalse(inflater.needsInput() || length == member.length);
+                length += inflater.inflate(member, length, member.length - length);
+            }
+            stream.position(compressed.length - inflater.getRemaining());
+            inflater.end();
+            assertTrue(length <= BLOCK_SIZE);
+
+            final var crc = new CRC32();
+            crc.update(member, 0, length);
+            assertEquals((int) crc.getValue(), stream.getInt());
+            assertEquals(length, stream.getInt());
+            assertArrayEquals(Arrays.copyOfRange(data, dataOffset, dataOffset + length),
+                    Arrays.copyOf(member, length));
+
+            dataOffset += length;
+            ++memberCount;
+        }
+
+        assertEquals(data.length, dataOffset);
+        return memberCount;
+    }
+}
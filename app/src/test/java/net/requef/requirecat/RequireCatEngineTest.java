@@ -0,0 +1,222 @@
+package net.requef.requirecat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequireCatEngineTest {
+    @TempDir
+    Path temporaryDirectory;
+
+    @Test
+    void buildsSampleRootInDependencyOrder() throws IOException, URISyntaxException {
+        final var root = RequireScannerTest.resource("sample-root-1");
+        final var expectedFile = root.resolve("out.txt");
+        final var engine = new RequireCatEngine(RequireCatOptions.builder().ignore(expectedFile).build());
+
+        final var output = new ByteArrayOutputStream();
+        final var result = engine.build(root, output);
+
+        assertFalse(result.isError());
+        assertEquals(List.of(root.resolve("Folder 2/File 2-1"), root.resolve("Folder 1/File 1-1"),
+                root.resolve("Folder 2/File 2-2")), result.getValue());
+        final var expected = Files.readString(expectedFile, StandardCharsets.UTF_8)
+                .replace("\n", System.lineSeparator());
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), output.toByteArray());
+    }
+
+    @Test
+    void reportsCycleInRequireOrder() throws URISyntaxException {
+        final var root = RequireScannerTest.resource("root-circular-dependency-2");
+        final var engine = new RequireCatEngine(RequireCatOptions.builder().build());
+
+        final var result = engine.build(root, new ByteArrayOutputStream());
+
+        assertTrue(result.isError());
+        assertEquals(BuildResult.ErrorKind.CIRCULAR_DEPENDENCY, result.getErrorKind());
+        assertEquals(List.of(List.of(root.resolve("b.txt").toString(), root.resolve("c.txt").toString(),
+                root.resolve("e.txt").toString())), result.getCycles());
+    }
+
+    @Test
+    void reportsFileRequiringItself() throws URISyntaxException {
+        final var root = RequireScannerTest.resource("root-circular-dependency");
+        final var engine = new RequireCatEngine(RequireCatOptions.builder().build());
+
+        final var result = engine.build(root, new ByteArrayOutputStream());
+
+        assertTrue(result.isError());
+        assertEquals(List.of(List.of(root.resolve("a.txt").toString())), result.getCycles());
+    }
+
+    @Test
+    void buildsIntoChannel() throws IOException, URISyntaxException {
+        final var root = RequireScannerTest.resource("sample-root-1");
+        final var expectedFile = root.resolve("out.txt");
+        final var engine = new RequireCatEngine(RequireCatOptions.builder().ignore(expectedFile).build());
+        final var outputFile = temporaryDirectory.resolve("out.txt");
+        final var metrics = new Metrics();
+
+        try (final var channel = Files.newByteChannel(outputFile, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE)) {
+            assertFalse(engine.build(root, channel, metrics).isError());
+        }
+
+        final var expected = Files.readString(expectedFile, StandardCharsets.UTF_8)
+                .replace("\n", System.lineSeparator());
+        assertEquals(expected, Files.readString(outputFile, StandardCharsets.UTF_8));
+        assertTrue(metrics.toJson(true).contains("\"bytes\": " + Files.size(outputFile) + ","));
+    }
+
+    @Test
+    void reportsInvalidStatementsToWarningListener() throws URISyntaxException {
+        final var root = RequireScannerTest.resource("root-invalid-require");
+        final var warnings = new ConcurrentLinkedQueue<String>();
+        final var engine = new RequireCatEngine(RequireCatOptions.builder()
+                .ignore(root.resolve("out.txt"))
+                .warningListener(warnings::add)
+                .build());
+
+        engine.build(root, new ByteArrayOutputStream());
+
+        final var file = root.resolve("b.txt");
+        for (final int lineNumber : List.of(16, 19, 22)) {
+            assertTrue(warnings.stream().anyMatch(warning -> warning.startsWith("(" + file + ":" + lineNumber + ")")),
+                    "No warning for line " + lineNumber + " in " + warnings);
+        }
+    }
+
+    @Test
+    void rejectsRootThatIsNotDirectory() throws URISyntaxException {
+        final var root = RequireScannerTest.resource("sample-root-1").resolve("out.txt");
+        final var engine = new RequireCatEngine(RequireCatOptions.builder().build());
+
+        final var result = engine.build(root, new ByteArrayOutputStream());
+
+        assertTrue(result.isError());
+        assertEquals(BuildResult.ErrorKind.INVALID_ROOT, result.getErrorKind());
+    }
+
+    @Test
+    void buildsFromManyThreadsAtOnce() throws Exception {
+        final var root = RequireScannerTest.resource("sample-root-1");
+        final var expectedFile = root.resolve("out.txt");
+        final var engine = new RequireCatEngine(RequireCatOptions.builder().ignore(expectedFile).build());
+        final var expected = Files.readString(expectedFile, StandardCharsets.UTF_8)
+                .replace("\n", System.lineSeparator());
+
+        final int threadCount = 8;
+        final var builds = new ArrayList<Callable<String>>();
+        for (int i = 0; i < threadCount * 4; ++i) {
+            builds.add(() -> {
+                final var output = new ByteArrayOutputStream();
+                assertFalse(engine.build(root, output).isError());
+                return output.toString(StandardCharsets.UTF_8);
+            });
+        }
+
+        final var executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            for (final var output : executor.invokeAll(builds)) {
+                assertEquals(expected, output.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void buildsRootOfZipArchive() throws IOException, URISyntaxException {
+        final var sampleRoot = RequireScannerTest.resource("sample-root-1");
+        final var archive = temporaryDirectory.resolve("sample-root-1.zip");
+        try (final var zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            for (final var name : List.of("Folder 1/File 1-1", "Folder 2/File 2-1", "Folder 2/File 2-2")) {
+                zip.putNextEntry(new ZipEntry(name));
+                zip.write(Files.readAllBytes(sampleRoot.resolve(name)));
+                zip.closeEntry();
+            }
+        }
+
+        try (final var zipFileSystem = FileSystems.newFileSystem(archive)) {
+            final var root = zipFileSystem.getPath("/");
+            final var engine = new RequireCatEngine(RequireCatOptions.builder().build());
+
+            final var output = new ByteArrayOutputStream();
+            final var result = engine.build(root, output);
+
+            assertFalse(result.isError());
+            assertEquals(List.of(root.resolve("Folder 2/File 2-1"), root.resolve("Folder 1/File 1-1"),
+                    root.resolve("Folder 2/File 2-2")), result.getValue());
+            final var expected = Files.readString(sampleRoot.resolve("out.txt"), StandardCharsets.UTF_8)
+                    .replace("\n", System.lineSeparator());
+            assertEquals(expected, output.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void collectsEveryProblemInOnePass() throws IOException {
+        final var root = Files.createDirectory(temporaryDirectory.resolve("root"));
+        Files.createDirectory(root.resolve("directory"));
+        Files.writeString(root.resolve("a.txt"), "A\nrequire ‘’\nrequire ‘missing.txt’\n", StandardCharsets.UTF_8);
+        Files.writeString(root.resolve("b.txt"), "require ‘c.txt’\n", StandardCharsets.UTF_8);
+        Files.writeString(root.resolve("c.txt"), "C\nrequire ‘b.txt’\n", StandardCharsets.UTF_8);
+        Files.writeString(root.resolve("d.txt"), "require ‘ignored.txt’\n", StandardCharsets.UTF_8);
+        Files.writeString(root.resolve("e.txt"), "require ‘directory’\n", StandardCharsets.UTF_8);
+        Files.writeString(root.resolve("ignored.txt"), "I\n", StandardCharsets.UTF_8);
+        final var engine = new RequireCatEngine(RequireCatOptions.builder().ignore(root.resolve("ignored.txt")).build());
+
+        final var result = engine.validate(root, null, new Metrics());
+
+        assertFalse(result.isError());
+        final var report = result.getValue();
+        assertEquals(5, report.getFileCount());
+        assertEquals(List.of(
+                        Diagnostic.Kind.INVALID_STATEMENT + " a.txt:2",
+                        Diagnostic.Kind.INVALID_REQUIRE + " a.txt:3",
+                        Diagnostic.Kind.CIRCULAR_DEPENDENCY + " b.txt:1",
+                        Diagnostic.Kind.MISSING_DEPENDENCY + " d.txt:1",
+                        Diagnostic.Kind.INVALID_REQUIRE + " e.txt:1"),
+                report.getDiagnostics().stream()
+                        .map(diagnostic -> diagnostic.getKind() + " " + root.relativize(Path.of(diagnostic.getPath()))
+                                + ":" + diagnostic.getLineNumber())
+                        .toList());
+        assertEquals(List.of(root.resolve("b.txt").toString(), root.resolve("c.txt").toString()),
+                report.getDiagnostics().get(2).getCycle());
+    }
+
+    @Test
+    void validatesOnlyFilesNeededByEntryFiles() throws IOException {
+        final var root = Files.createDirectory(temporaryDirectory.resolve("root"));
+        Files.writeString(root.resolve("a.txt"), "require ‘b.txt’\n", StandardCharsets.UTF_8);
+        Files.writeString(root.resolve("b.txt"), "B\n", StandardCharsets.UTF_8);
+        Files.writeString(root.resolve("broken.txt"), "require ‘missing.txt’\n", StandardCharsets.UTF_8);
+        final var engine = new RequireCatEngine(RequireCatOptions.builder().build());
+
+        final var result = engine.validate(root, List.of(root.resolve("a.txt")), new Metrics());
+
+        assertFalse(result.isError());
+        assertTrue(result.getValue().isValid());
+        assertEquals(2, result.getValue().getFileCount());
+        assertFalse(engine.validate(root, null, new Metrics()).getValue().isValid());
+    }
+}
@@ -0,0 +1,227 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequireCatTest {
+    @TempDir
+    Path temporaryDirectory;
+
+    private Path root;
+    private Path outputFile;
+    private String log;
+
+    @BeforeEach
+    void createRoot() throws IOException {
+        root = Files.createDirectory(temporaryDirectory.resolve("root"));
+        // The output lives next to the root, so it is never part of the walk.
+        outputFile = temporaryDirectory.resolve("out.txt");
+        write("a.txt", "A\n");
+        write("b.txt", "require ‘a.txt’\nB\n");
+        write("c.txt", "require ‘b.txt’\nC\n");
+    }
+
+    @Test
+    void rewritesOutputAfterFirstChangedFile() throws IOException {
+        assertEquals(0, run(root, "-o=../out.txt", "--incremental"));
+        assertEquals(output("A", "require ‘a.txt’", "B", "require ‘b.txt’", "C"), readOutput());
+
+        assertEquals(0, run(root, "-o=../out.txt", "--incremental"));
+        assertTrue(log.contains("is up to date"), log);
+
+        write("c.txt", "require ‘b.txt’\nC, but longer\n");
+        assertEquals(0, run(root, "-o=../out.txt", "--incremental"));
+        assertTrue(log.contains("Keeping 2 of 3 files"), log);
+        assertEquals(output("A", "require ‘a.txt’", "B", "require ‘b.txt’", "C, but longer"), readOutput());
+
+        // A shorter file at the start must not leave the old tail behind.
+        write("a.txt", "\n");
+        assertEquals(0, run(root, "-o=../out.txt", "--incremental"));
+        assertTrue(log.contains("Keeping 0 of 3 files"), log);
+        assertEquals(output("", "require ‘a.txt’", "B", "require ‘b.txt’", "C, but longer"), readOutput());
+    }
+
+    @Test
+    void overwritesOutputWithCorruptIndex() throws IOException {
+        assertEquals(0, run(root, "-o=../out.txt", "--incremental"));
+        final var indexFile = SegmentIndex.indexFileOf(outputFile.toFile());
+        try (final var index = new RandomAccessFile(indexFile, "rw")) {
+            index.setLength(index.length() / 2);
+        }
+
+        write("b.txt", "require ‘a.txt’\nBB\n");
+        assertEquals(0, run(root, "-o=../out.txt", "--incremental"));
+        assertTrue(log.contains("has no valid index, overwriting it"), log);
+        assertEquals(output("A", "require ‘a.txt’", "BB", "require ‘b.txt’", "C"), readOutput());
+
+        assertEquals(0, run(root, "-o=../out.txt", "--incremental"));
+        assertTrue(log.contains("is up to date"), log);
+    }
+
+    @Test
+    void abortsOnMalformedIgnorePattern() throws IOException {
+        write(IgnoreRules.FILE_NAME, "*.log\n[z-a]\n");
+
+        assertEquals(1, run(root, "-o=../out.txt"));
+        assertTrue(log.contains("'[z-a]' is not a valid ignore pattern"), log);
+        assertFalse(Files.exists(outputFile));
+
+        write(IgnoreRules.FILE_NAME, "*.log\n");
+        assertEquals(1, run(root, "-o=../out.txt", "--exclude=[z-a]"));
+        assertFalse(Files.exists(outputFile));
+    }
+
+    @Test
+    void skipsExcludedFiles() throws IOException {
+        write(IgnoreRules.FILE_NAME, "extra/\n");
+        write("extra/d.txt", "D\n");
+        write("extra/e.txt", "E\n");
+        write("f.txt", "F\n");
+
+        assertEquals(0, run(root, "-o=../out.txt", "--exclude=f.txt", "--include=c.txt"));
+        assertEquals(output("A", "require ‘a.txt’", "B", "require ‘b.txt’", "C"), readOutput());
+    }
+
+    @Test
+    void skipsWritingUnchangedOutput() throws IOException {
+        assertEquals(0, run(root, "-o=../out.txt", "--skip-unchanged"));
+        final var modifiedTime = Files.getLastModifiedTime(outputFile);
+
+        assertEquals(0, run(root, "-o=../out.txt", "--skip-unchanged"));
+        assertTrue(log.contains("is up to date"), log);
+        assertEquals(modifiedTime, Files.getLastModifiedTime(outputFile));
+
+        write("c.txt", "require ‘b.txt’\nC, but longer\n");
+        assertEquals(0, run(root, "-o=../out.txt", "--skip-unchanged"));
+        assertFalse(log.contains("is up to date"), log);
+        assertEquals(output("A", "require ‘a.txt’", "B", "require ‘b.txt’", "C, but longer"), readOutput());
+
+        // Another compression makes another output.
+        assertEquals(0, run(root, "-o=../out.txt", "--skip-unchanged", "--gzip"));
+        assertFalse(log.contains("is up to date"), log);
+        assertEquals(0, run(root, "-o=../out.txt", "--skip-unchanged", "--gzip"));
+        assertTrue(log.contains("is up to date"), log);
+    }
+
+    @Test
+    void writesOutputChangedSinceLastRun() throws IOException {
+        assertEquals(0, run(root, "-o=../out.txt", "--skip-unchanged=hash"));
+        Files.writeString(outputFile, "edited by hand\n", StandardCharsets.UTF_8);
+
+        assertEquals(0, run(root, "-o=../out.txt", "--skip-unchanged=hash"));
+        assertFalse(log.contains("is up to date"), log);
+        assertEquals(output("A", "require ‘a.txt’", "B", "require ‘b.txt’", "C"), readOutput());
+    }
+
+    @Test
+    void buildsArchiveRootNextToArchive() throws IOException {
+        final var archive = temporaryDirectory.resolve("root.zip");
+        try (final var zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            addEntry(zip, IgnoreRules.FILE_NAME, "skipped/\n");
+            addEntry(zip, "nested/a.txt", "A\r\n");
+            addEntry(zip, "b.txt", "require ‘nested/a.txt’\rB");
+            addEntry(zip, "skipped/c.txt", "require ‘b.txt’\n");
+        }
+
+        // The paths of the options are relative to the directory of the archive.
+        assertEquals(0, run(archive, "-o=out.txt"));
+        assertEquals(output("A", "require ‘nested/a.txt’", "B"), readOutput());
+        assertTrue(Files.exists(archive));
+    }
+
+    @Test
+    void abortsOnBrokenArchive() throws IOException {
+        final var archive = Files.writeString(temporaryDirectory.resolve("broken.zip"), "not a zip", StandardCharsets.UTF_8);
+
+        assertEquals(1, run(archive, "-o=out.txt"));
+        assertTrue(log.contains("Failed to open the archive"), log);
+        assertFalse(Files.exists(outputFile));
+    }
+
+    @Test
+    void writesValidationReportInsteadOfOutput() throws IOException {
+        write("b.txt", "require ‘a.txt’\nrequire ‘c.txt’\nrequire ‘missing.txt’\n");
+        write("d.txt", "require ‘’\n");
+
+        assertEquals(1, run(root, "-o=../out.txt", "--validate=../report.json"));
+        assertTrue(log.contains("Validation of 4 files found 3 problems"), log);
+        assertFalse(Files.exists(outputFile));
+
+        final var report = Files.readString(temporaryDirectory.resolve("report.json"), StandardCharsets.UTF_8);
+        assertTrue(report.startsWith("{\n  \"valid\": false,\n  \"files\": 4,\n"), report);
+        for (final var kind : List.of("CIRCULAR_DEPENDENCY", "INVALID_REQUIRE", "INVALID_STATEMENT")) {
+            assertTrue(report.contains("{\"kind\": \"" + kind + "\""), report);
+        }
+    }
+
+    @Test
+    void validatesValidRoot() throws IOException {
+        assertEquals(0, run(root, "-o=../out.txt", "--validate=../report.json"));
+        assertTrue(log.contains("Validated 3 files, no problems found"), log);
+        assertFalse(Files.exists(outputFile));
+        assertEquals("{\n  \"valid\": true,\n  \"files\": 3,\n  \"diagnostics\": []\n}\n",
+                Files.readString(temporaryDirectory.resolve("report.json"), StandardCharsets.UTF_8));
+    }
+
+    private void write(final @NotNull String name, final @NotNull String content) throws IOException {
+        final var file = root.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+
+    private static void addEntry(final @NotNull ZipOutputStream zip,
+                                 final @NotNull String name,
+                                 final @NotNull String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    private @NotNull String readOutput() throws IOException {
+        return Files.readString(outputFile, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Runs the program on the given root and keeps what it logged.
+     * @return The exit code.
+     */
+    private int run(final @NotNull Path root, final @NotNull String... args) {
+        final var arguments = new String[args.length + 1];
+        arguments[0] = root.toString();
+        System.arraycopy(args, 0, arguments, 1, args.length);
+
+        final var console = new ByteArrayOutputStream();
+        final int exitCode;
+        try (final var logger = new Logger(new PrintStream(console, true, StandardCharsets.UTF_8))) {
+            exitCode = new RequireCat(logger, new PrintStream(console, true, StandardCharsets.UTF_8), null)
+                    .run(null, arguments);
+        }
+        log = console.toString(StandardCharsets.UTF_8);
+        return exitCode;
+    }
+
+    private static @NotNull String output(final @NotNull String... lines) {
+        final var output = new StringBuilder();
+        for (final var line : lines) {
+            output.append(line).append(System.lineSeparator());
+        }
+        return output.toString();
+    }
+}
@@ -0,0 +1,134 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Scanner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequireScannerTest {
+    @TempDir
+    Path temporaryDirectory;
+
+    @Test
+    void findsStatementsOfSampleFiles() throws IOException, URISyntaxException {
+        final var root = resource("sample-root-1");
+
+        assertEquals(List.of("1:Folder 1/File 1-1", "2:Folder 2/File 2-1"),
+                scan(root.resolve("Folder 2/File 2-2"), false, new ArrayList<>()));
+        assertEquals(List.of("5:Folder 2/File 2-1"), scan(root.resolve("Folder 1/File 1-1"), false, new ArrayList<>()));
+        assertEquals(List.of(), scan(root.resolve("Folder 2/File 2-1"), false, new ArrayList<>()));
+    }
+
+    @Test
+    void reportsInvalidStatementsOnTheirLines() throws IOException, URISyntaxException {
+        final var errorLines = new ArrayList<Integer>();
+        final var statements = scan(resource("root-invalid-require").resolve("b.txt"), false, errorLines);
+
+        assertEquals(List.of("25:a.txt", "28:invalid/file.txt", "31:nonexistent.txt"), statements);
+        assertEquals(List.of(16, 19, 22), errorLines);
+    }
+
+    @Test
+    void splitsLinesLikeScanner() throws IOException {
+        final var content = "first\r\nrequire ‘a’\rsecond\u0085require ‘b’\u2028\n"
+                + "require ‘c’\r\n\rrequire ‘d’\u2029text\r";
+        final var file = write("terminators.txt", content);
+
+        assertEquals(scanWithScanner(file), scan(file, false, new ArrayList<>()));
+        assertEquals(List.of("2:a", "4:b", "6:c", "8:d"), scan(file, false, new ArrayList<>()));
+    }
+
+    @Test
+    void scansLastLineWithoutTerminator() throws IOException {
+        final var file = write("unterminated.txt", "text\nrequire ‘a’");
+
+        assertEquals(scanWithScanner(file), scan(file, false, new ArrayList<>()));
+        assertEquals(List.of("2:a"), scan(file, false, new ArrayList<>()));
+    }
+
+    @Test
+    void splitsTerminatorsAcrossReadBuffers() throws IOException {
+        // The scanner reads 64 KiB at a time: every terminator is placed so that it is split by a buffer boundary.
+        final int bufferSize = 64 * 1024;
+        for (final var terminator : List.of("\r\n", "\u0085", "\u2028", "\u2029")) {
+            final int terminatorLength = terminator.getBytes(StandardCharsets.UTF_8).length;
+            for (int split = 1; split < terminatorLength; ++split) {
+                final var content = "x".repeat(bufferSize - split) + terminator + "require ‘a’" + terminator
+                        + "\r" + "require ‘b’";
+                final var file = write("boundary.txt", content);
+
+                assertEquals(scanWithScanner(file), scan(file, false, new ArrayList<>()));
+                assertEquals(List.of("2:a", "4:b"), scan(file, false, new ArrayList<>()));
+            }
+        }
+    }
+
+    @Test
+    void findsStatementLongerThanLineBuffer() throws IOException {
+        final var path = "directory/".repeat(100) + "file.txt";
+        final var file = write("long.txt", "text\nrequire ‘" + path + "’\n");
+
+        assertEquals(List.of("2:" + path), scan(file, false, new ArrayList<>()));
+    }
+
+    @Test
+    void findsNothingInEmptyFile() throws IOException {
+        final var file = write("empty.txt", "");
+
+        assertEquals(List.of(), scan(file, false, new ArrayList<>()));
+    }
+
+    @Test
+    void stopsAtFirstOtherLineInHeaderOnlyMode() throws IOException {
+        final var file = write("header.txt", "require ‘a’\n\nrequire ‘b’\ntext\nrequire ‘c’\n");
+
+        assertEquals(List.of("1:a", "3:b"), scan(file, true, new ArrayList<>()));
+        assertEquals(List.of("1:a", "3:b", "5:c"), scan(file, false, new ArrayList<>()));
+    }
+
+    private @NotNull Path write(final @NotNull String name, final @NotNull String content) throws IOException {
+        return Files.writeString(temporaryDirectory.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    static @NotNull Path resource(final @NotNull String name) throws URISyntaxException {
+        return Path.of(Objects.requireNonNull(RequireScannerTest.class.getResource("/" + name)).toURI());
+    }
+
+    private static @NotNull List<String> scan(final @NotNull Path file,
+                                              final boolean isHeaderOnly,
+                                              final @NotNull List<Integer> errorLines) throws IOException {
+        return new RequireScanner(isHeaderOnly).scan(file, (lineNumber, error) -> errorLines.add(lineNumber))
+                .stream()
+                .map(statement -> statement.getLineNumber() + ":" + statement.getPath())
+                .toList();
+    }
+
+    /**
+     * Finds the valid statements the way the original line-based parser did, with {@link Scanner#nextLine()}.
+     */
+    private static @NotNull List<String> scanWithScanner(final @NotNull Path file) throws IOException {
+        final var statements = new ArrayList<String>();
+        try (final var scanner = new Scanner(file, StandardCharsets.UTF_8)) {
+            int lineNumber = 0;
+            while (scanner.hasNextLine()) {
+                ++lineNumber;
+                final var line = scanner.nextLine();
+                if (line.startsWith("require ‘") && line.endsWith("’") && line.length() > 10) {
+                    statements.add(lineNumber + ":" + line.substring(9, line.length() - 1));
+                }
+            }
+        }
+        return statements;
+    }
+}
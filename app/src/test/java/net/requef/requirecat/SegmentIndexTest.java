@@ -0,0 +1,144 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SegmentIndexTest {
+    @TempDir
+    Path temporaryDirectory;
+
+    @Test
+    void loadsSavedIndex() throws IOException {
+        final var files = List.of(write("a.txt", "A\n"), write("b.txt", "BB\n"));
+        final var outputFile = writeOutput(files);
+
+        final var index = SegmentIndex.load(outputFile);
+
+        assertNotNull(index);
+        assertEquals(2, index.getSegmentCount());
+        assertEquals(0, index.getOffset(0));
+        assertEquals(2, index.getOffset(1));
+        assertEquals(5, index.getOffset(2));
+        assertEquals(2, index.countUnchangedSegments(files));
+    }
+
+    @Test
+    void countsSegmentsUpToFirstChangedFile() throws IOException {
+        final var files = List.of(write("a.txt", "A\n"), write("b.txt", "B\n"), write("c.txt", "C\n"));
+        final var index = SegmentIndex.load(writeOutput(files));
+        assertNotNull(index);
+
+        write("b.txt", "BB\n");
+        assertEquals(1, index.countUnchangedSegments(files));
+        assertEquals(1, index.countUnchangedSegments(List.of(files.get(0), files.get(2), files.get(1))));
+        assertEquals(1, index.countUnchangedSegments(List.of(files.get(0))));
+    }
+
+    @Test
+    void keepsTouchedFileWithSameContent() throws IOException {
+        final var files = List.of(write("a.txt", "A\n"), write("b.txt", "B\n"));
+        final var index = SegmentIndex.load(writeOutput(files));
+        assertNotNull(index);
+
+        Files.setLastModifiedTime(files.get(1), FileTime.fromMillis(0));
+        assertEquals(2, index.countUnchangedSegments(files));
+
+        Files.writeString(files.get(1), "C\n", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(files.get(1), FileTime.fromMillis(0));
+        assertEquals(1, index.countUnchangedSegments(files));
+    }
+
+    @Test
+    void rejectsIndexOfChangedOutput() throws IOException {
+        final var outputFile = writeOutput(List.of(write("a.txt", "A\n")));
+
+        Files.writeString(outputFile.toPath(), "changed\n", StandardCharsets.UTF_8);
+
+        assertNull(SegmentIndex.load(outputFile));
+    }
+
+    @Test
+    void rejectsCorruptIndex() throws IOException {
+        final var outputFile = writeOutput(List.of(write("a.txt", "A\n"), write("b.txt", "B\n")));
+        final var indexFile = SegmentIndex.indexFileOf(outputFile);
+        final var original = Files.readAllBytes(indexFile.toPath());
+        // Magic, version, output size and output modification time come before the segment count.
+        final int segmentCountOffset = 4 + 4 + 8 + 8;
+
+        setInt(indexFile, 0, 0);
+        assertNull(SegmentIndex.load(outputFile));
+
+        Files.write(indexFile.toPath(), original);
+        setInt(indexFile, segmentCountOffset, Integer.MAX_VALUE);
+        assertNull(SegmentIndex.load(outputFile));
+
+        Files.write(indexFile.toPath(), original);
+        setInt(indexFile, segmentCountOffset, -1);
+        assertNull(SegmentIndex.load(outputFile));
+
+        Files.write(indexFile.toPath(), original);
+        try (final var index = new RandomAccessFile(indexFile, "rw")) {
+            index.setLength(original.length - 1);
+        }
+        assertNull(SegmentIndex.load(outputFile));
+
+        Files.write(indexFile.toPath(), original);
+        assertNotNull(SegmentIndex.load(outputFile));
+    }
+
+    @Test
+    void rejectsSegmentOutsideOutput() throws IOException {
+        final var files = List.of(write("a.txt", "A\n"));
+        final var outputFile = writeOutput(files);
+        final var segment = SegmentIndex.Segment.of(files.get(0));
+        segment.setRange(1, 2);
+        new SegmentIndex(List.of(segment)).save(outputFile);
+
+        assertNull(SegmentIndex.load(outputFile));
+    }
+
+    private @NotNull Path write(final @NotNull String name, final @NotNull String content) throws IOException {
+        return Files.writeString(temporaryDirectory.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the files one after another into the output file and saves their index.
+     */
+    private @NotNull File writeOutput(final @NotNull List<Path> files) throws IOException {
+        final var outputFile = temporaryDirectory.resolve("out.txt").toFile();
+        final var segments = new ArrayList<SegmentIndex.Segment>();
+        final var output = new StringBuilder();
+        for (final var file : files) {
+            final var segment = SegmentIndex.Segment.of(file);
+            final var content = Files.readString(file, StandardCharsets.UTF_8);
+            segment.setRange(output.length(), content.length());
+            segments.add(segment);
+            output.append(content);
+        }
+        Files.writeString(outputFile.toPath(), output, StandardCharsets.UTF_8);
+        new SegmentIndex(segments).save(outputFile);
+        return outputFile;
+    }
+
+    private static void setInt(final @NotNull File file, final long offset, final int value) throws IOException {
+        try (final var output = new RandomAccessFile(file, "rw")) {
+            output.seek(offset);
+            output.writeInt(value);
+        }
+    }
+}
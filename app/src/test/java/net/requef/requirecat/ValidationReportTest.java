@@ -0,0 +1,51 @@
+package net.requef.requirecat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ValidationReportTest {
+    @Test
+    void sortsDiagnosticsByFileAndLine() {
+        final var report = new ValidationReport(3, List.of(
+                Diagnostic.of(Diagnostic.Kind.INVALID_REQUIRE, "b.txt", 7, "b7"),
+                Diagnostic.of(Diagnostic.Kind.INVALID_STATEMENT, "a.txt", 12, "a12"),
+                Diagnostic.of(Diagnostic.Kind.UNREADABLE_FILE, "c.txt", 0, "c0"),
+                Diagnostic.of(Diagnostic.Kind.INVALID_STATEMENT, "a.txt", 3, "a3")));
+
+        assertFalse(report.isValid());
+        assertEquals(3, report.getFileCount());
+        assertEquals(List.of("a3", "a12", "b7", "c0"),
+                report.getDiagnostics().stream().map(Diagnostic::getMessage).toList());
+    }
+
+    @Test
+    void formatsJson() {
+        final var report = new ValidationReport(2, List.of(
+                Diagnostic.of(Diagnostic.Kind.INVALID_STATEMENT, "dir\\\"quoted\".txt", 2, "tab\there\nnew\u0001"),
+                Diagnostic.cycle(List.of("a.txt", "b.txt"), 1)));
+
+        assertEquals("{\n"
+                + "  \"valid\": false,\n"
+                + "  \"files\": 2,\n"
+                + "  \"diagnostics\": [\n"
+                + "    {\"kind\": \"CIRCULAR_DEPENDENCY\", \"file\": \"a.txt\", \"line\": 1, "
+                + "\"message\": \"Circular dependency: a.txt -> b.txt -> a.txt\", \"cycle\": [\"a.txt\", \"b.txt\"]},\n"
+                + "    {\"kind\": \"INVALID_STATEMENT\", \"file\": \"dir\\\\\\\"quoted\\\".txt\", \"line\": 2, "
+                + "\"message\": \"tab\\there\\nnew\\u0001\"}\n"
+                + "  ]\n"
+                + "}\n", report.toJson());
+    }
+
+    @Test
+    void formatsValidReportAsJson() {
+        final var report = new ValidationReport(5, List.of());
+
+        assertTrue(report.isValid());
+        assertEquals("{\n  \"valid\": true,\n  \"files\": 5,\n  \"diagnostics\": []\n}\n", report.toJson());
+    }
+}
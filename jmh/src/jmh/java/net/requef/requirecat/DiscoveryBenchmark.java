@@ -0,0 +1,26 @@
+package net.requef.requirecat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the walk of the root directory together with parsing of every file.
+ */
+public class DiscoveryBenchmark extends TreeBenchmark {
+    private RequireCatEngine engine;
+
+    @Setup(Level.Trial)
+    public void createEngine() {
+        engine = new RequireCatEngine(RequireCatOptions.builder().build());
+    }
+
+    @Benchmark
+    public Map<Path, List<RequireStatement>> findFiles() {
+        return engine.discover(root, null, new Metrics());
+    }
+}
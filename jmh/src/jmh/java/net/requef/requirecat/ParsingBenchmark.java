@@ -0,0 +1,35 @@
+package net.requef.requirecat;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Measures parsing of every file of the tree on a single thread, without the walk.
+ */
+public class ParsingBenchmark extends TreeBenchmark {
+    @Param({"false", "true"})
+    public boolean isHeaderOnly;
+
+    private RequireScanner requireScanner;
+    private List<Path> files;
+
+    @Setup(Level.Trial)
+    public void listFiles() throws IOException {
+        requireScanner = new RequireScanner(isHeaderOnly);
+        try (final var paths = Files.walk(root)) {
+            files = paths.filter(Files::isRegularFile).toList();
+        }
+    }
+
+    @Benchmark
+    public void scan(final Blackhole blackhole) throws IOException {
+        for (final var file : files) {
+            blackhole.consume(requireScanner.scan(file, (lineNumber, error) -> blackhole.consume(error)));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package net.requef.requirecat;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the topological sort of an in-memory graph, without any I/O.
+ * The graph is laid out the way {@link DependencyGraph} lays it out for the sorter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SortingBenchmark {
+    @Param({"WIDE", "DEEP_CHAIN", "DENSE_DAG"})
+    public SyntheticTree.Shape shape;
+
+    @Param({"10000", "1000000"})
+    public int fileCount;
+
+    private int nodeCount;
+    private int[] dependencyOffsets;
+    private int[] dependencies;
+
+    @Setup(Level.Trial)
+    public void generateGraph() {
+        final var tree = new SyntheticTree(shape, fileCount);
+        final var treeDependencies = tree.getDependencies();
+        nodeCount = tree.getFileCount();
+
+        dependencyOffsets = new int[nodeCount + 1];
+        for (int node = 0; node < nodeCount; ++node) {
+            dependencyOffsets[node + 1] = dependencyOffsets[node] + treeDependencies.get(node).size();
+        }
+        dependencies = new int[dependencyOffsets[nodeCount]];
+        for (int node = 0; node < nodeCount; ++node) {
+            int offset = dependencyOffsets[node];
+            for (final int dependency : treeDependencies.get(node)) {
+                dependencies[offset++] = dependency;
+            }
+        }
+    }
+
+    @Benchmark
+    public int[] sort() {
+        // A new sorter every time, so building its reverse adjacency is measured too.
+        return new IndexedTopologicalSorter(nodeCount, dependencyOffsets, dependencies).sort();
+    }
+
+    @Benchmark
+    public int[][] sortLevels() {
+        return new IndexedTopologicalSorter(nodeCount, dependencyOffsets, dependencies).sortLevels();
+    }
+}
@@ -0,0 +1,87 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the wall time of a whole RequireCat process on a small root, the way scripts call it,
+ * with and without the AppCDS archive that the launcher of the installation uses.
+ * The archive is created by a training run before the measurement, same as the 'cdsArchive' task does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 30)
+public class StartupBenchmark {
+    @Param({"false", "true"})
+    public boolean useArchive;
+
+    @Param({"20"})
+    public int fileCount;
+
+    private Path root;
+    private Path archiveDirectory;
+    private String classpath;
+
+    @Setup(Level.Trial)
+    public void createArchive() throws IOException, InterruptedException {
+        root = new SyntheticTree(SyntheticTree.Shape.WIDE, fileCount).write(5);
+        archiveDirectory = Files.createTempDirectory("requirecat-cds");
+        classpath = String.join(File.pathSeparator, codeSourceOf(RequireCat.class), codeSourceOf(NotNull.class));
+
+        if (useArchive) {
+            run("-XX:ArchiveClassesAtExit=" + archiveDirectory.resolve("RequireCat.jsa"));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteArchive() {
+        SyntheticTree.delete(root);
+        SyntheticTree.delete(archiveDirectory);
+    }
+
+    @Benchmark
+    public int runProcess() throws IOException, InterruptedException {
+        if (useArchive) {
+            return run("-XX:SharedArchiveFile=" + archiveDirectory.resolve("RequireCat.jsa"), "-Xshare:auto");
+        }
+        return run();
+    }
+
+    private int run(final @NotNull String... jvmArgs) throws IOException, InterruptedException {
+        final var command = new ArrayList<String>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(List.of(jvmArgs));
+        command.addAll(List.of("-Xlog:cds=off", "-Xlog:cds+dynamic=off", "-cp", classpath,
+                RequireCat.class.getName(), root.toString(), "-q"));
+
+        final var process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        final int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IllegalStateException("RequireCat exited with code " + exitCode);
+        }
+        return exitCode;
+    }
+
+    private static @NotNull String codeSourceOf(final @NotNull Class<?> type) {
+        try {
+            return Path.of(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        } catch (final URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
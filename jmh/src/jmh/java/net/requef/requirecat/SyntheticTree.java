@@ -0,0 +1,151 @@
+package net.requef.requirecat;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Generates synthetic root directories for the benchmarks.
+ * The same shape, scale and seed always produce the same tree.
+ */
+public class SyntheticTree {
+    private static final String FILLER_LINE = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. "
+            + "Suspendisse id enim euismod erat elementum cursus.";
+    private static final int FILES_PER_DIRECTORY = 64;
+    private static final long SEED = 42;
+
+    /**
+     * The shapes of the generated trees.
+     */
+    public enum Shape {
+        /**
+         * Many small files spread over shallow directories, each requiring a couple of others.
+         */
+        WIDE,
+        /**
+         * Every file requires the previous one, forming a single long chain.
+         */
+        DEEP_CHAIN,
+        /**
+         * Every file requires many files that come before it.
+         */
+        DENSE_DAG,
+        /**
+         * A hundred times fewer files, each with a thousand times more content and a handful of requires.
+         */
+        LARGE_FILE
+    }
+
+    private final Shape shape;
+    private final int fileCount;
+    private final List<String> paths;
+    private final List<List<Integer>> dependencies;
+
+    /**
+     * Generates the graph of a tree, without writing anything to the disk.
+     * @param shape The shape of the tree.
+     * @param fileCount The number of files in the tree.
+     */
+    public SyntheticTree(final @NotNull Shape shape, final int fileCount) {
+        this.shape = shape;
+        this.fileCount = shape == Shape.LARGE_FILE ? Math.max(1, fileCount / 100) : fileCount;
+        this.paths = new ArrayList<>(this.fileCount);
+        this.dependencies = new ArrayList<>(this.fileCount);
+
+        final var random = new Random(SEED);
+        for (int i = 0; i < this.fileCount; ++i) {
+            paths.add(String.format("dir-%d/file-%d.txt", i / FILES_PER_DIRECTORY, i));
+            dependencies.add(generateDependencies(i, random));
+        }
+    }
+
+    private @NotNull List<Integer> generateDependencies(final int file, final @NotNull Random random) {
+        if (file == 0) {
+            return List.of();
+        }
+
+        if (shape == Shape.DEEP_CHAIN) {
+            return List.of(file - 1);
+        }
+
+        final int count = switch (shape) {
+            case DENSE_DAG -> 16;
+            case LARGE_FILE -> 4;
+            default -> 2;
+        };
+
+        final var result = new LinkedHashSet<Integer>();
+        for (int i = 0; i < count; ++i) {
+            result.add(random.nextInt(file));
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Returns the dependencies of every file by its index.
+     * @return The dependency lists.
+     */
+    public @NotNull List<List<Integer>> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Returns the number of files in the tree.
+     * @return The number of files.
+     */
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * Writes the tree into a new temporary directory.
+     * @param fillerLines The number of filler lines after the requires of every file.
+     * @return The root directory of the tree.
+     */
+    public @NotNull Path write(final int fillerLines) {
+        try {
+            final var root = Files.createTempDirectory("requirecat-bench-");
+            final int lines = shape == Shape.LARGE_FILE ? fillerLines * 1000 : fillerLines;
+
+            for (int i = 0; i < fileCount; ++i) {
+                final var file = root.resolve(paths.get(i));
+                Files.createDirectories(file.getParent());
+
+                final var content = new StringBuilder();
+                for (final var dependency : dependencies.get(i)) {
+                    content.append("require ‘").append(paths.get(dependency)).append("’\n");
+                }
+                content.append('\n');
+                for (int line = 0; line < lines; ++line) {
+                    content.append(FILLER_LINE).append('\n');
+                }
+
+                Files.writeString(file, content, StandardCharsets.UTF_8);
+            }
+
+            return root;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Deletes a tree written by {@link #write(int)}.
+     * @param root The root directory of the tree.
+     */
+    public static void delete(final @NotNull Path root) {
+        try (final var paths = Files.walk(root)) {
+            final var sorted = paths.sorted(Comparator.reverseOrder()).toList();
+            for (final var path : sorted) {
+                Files.deleteIfExists(path);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package net.requef.requirecat;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base state of the benchmarks that need a synthetic tree on the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public abstract class TreeBenchmark {
+    @Param({"WIDE", "DEEP_CHAIN", "DENSE_DAG", "LARGE_FILE"})
+    public SyntheticTree.Shape shape;
+
+    @Param({"1000"})
+    public int fileCount;
+
+    @Param({"20"})
+    public int fillerLines;
+
+    protected SyntheticTree tree;
+    protected Path root;
+
+    @Setup(Level.Trial)
+    public void writeTree() {
+        tree = new SyntheticTree(shape, fileCount);
+        root = tree.write(fillerLines);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteTree() {
+        SyntheticTree.delete(root);
+    }
+}
@@ -0,0 +1,43 @@
+package net.requef.requirecat;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Measures concatenation of every file of the tree into the output file.
+ */
+public class WritingBenchmark extends TreeBenchmark {
+    @Param({"0", "64"})
+    public long readAheadMegabytes;
+
+    private List<Path> files;
+    private Path outputFile;
+
+    @Setup(Level.Trial)
+    public void listFiles() throws IOException {
+        try (final var paths = Files.walk(root)) {
+            files = paths.filter(Files::isRegularFile).sorted().toList();
+        }
+        outputFile = Files.createTempFile("requirecat-bench-", ".txt");
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteOutput() throws IOException {
+        Files.deleteIfExists(outputFile);
+    }
+
+    @Benchmark
+    public long concatenate() throws IOException {
+        try (final var output = FileChannel.open(outputFile, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            FileConcatenator.concatenate(files, output, readAheadMegabytes * 1024 * 1024);
+            return output.size();
+        }
+    }
+}